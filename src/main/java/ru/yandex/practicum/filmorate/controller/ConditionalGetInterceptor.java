@@ -0,0 +1,73 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import ru.yandex.practicum.filmorate.service.EntityVersions;
+import ru.yandex.practicum.filmorate.service.FilmService;
+
+import java.util.Map;
+
+/**
+ * Условные запросы к фильму, списку друзей и популярным фильмам. ETag вычисляется по версиям
+ * данных до вызова контроллера, и если он совпадает с {@code If-None-Match}, клиент получает 304
+ * без обращения к хранилищу и сериализации ответа.
+ * <p>
+ * Версия фильма, который ни разу не менялся с запуска приложения, одинакова для всех таких фильмов,
+ * поэтому перед сравнением проверяется, что фильм существует: для удалённого или несуществующего
+ * фильма ETag не выдаётся, и контроллер отвечает 404.
+ */
+@Component
+@RequiredArgsConstructor
+public class ConditionalGetInterceptor implements HandlerInterceptor {
+
+    private static final int DEFAULT_POPULAR_COUNT = 10;
+
+    private final EntityVersions entityVersions;
+    private final FilmService filmService;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!HttpMethod.GET.matches(request.getMethod()) && !HttpMethod.HEAD.matches(request.getMethod())) {
+            return true;
+        }
+        String etag = etag(request);
+        return etag == null || !new ServletWebRequest(request, response).checkNotModified(etag);
+    }
+
+    @SuppressWarnings("unchecked")
+    private String etag(HttpServletRequest request) {
+        String pattern = String.valueOf(request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE));
+        Map<String, String> variables =
+                (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        try {
+            if (pattern.equals("/films/{id}")) {
+                long id = Long.parseLong(variables.get("id"));
+                return filmService.filmExists(id) ? entityVersions.filmTag(id) : null;
+            }
+            if (pattern.equals("/users/{id}/friends")) {
+                return entityVersions.friendsTag(Long.parseLong(variables.get("id")));
+            }
+            if (pattern.equals("/films/popular")) {
+                String count = request.getParameter("count");
+                return entityVersions.popularTag(count == null ? DEFAULT_POPULAR_COUNT : Integer.parseInt(count),
+                        optionalInt(request, "genreId"), optionalInt(request, "year"));
+            }
+        } catch (NumberFormatException e) {
+            // Некорректный параметр отклонит контроллер
+            return null;
+        }
+        return null;
+    }
+
+    private static Integer optionalInt(HttpServletRequest request, String name) {
+        String value = request.getParameter(name);
+        return value == null ? null : Integer.valueOf(value);
+    }
+
+}
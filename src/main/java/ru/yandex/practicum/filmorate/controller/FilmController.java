@@ -1,13 +1,26 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.yandex.practicum.filmorate.exceptions.ResourceNotFoundException;
 import ru.yandex.practicum.filmorate.exceptions.ValidationException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.model.LikeOperationResult;
+import ru.yandex.practicum.filmorate.model.LookupResult;
+import ru.yandex.practicum.filmorate.service.EntityVersions;
+import ru.yandex.practicum.filmorate.service.FilmLeaderboard;
 import ru.yandex.practicum.filmorate.service.FilmService;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 @RestController
@@ -16,7 +29,12 @@ import java.util.List;
 @RequiredArgsConstructor
 public class FilmController {
 
+    private static final int DEFAULT_PAGE_SIZE = 100;
+
     private final FilmService filmService;
+    private final ObjectMapper objectMapper;
+    private final ResponseCache responseCache;
+    private final EntityVersions entityVersions;
 
     @GetMapping
     public List<Film> getFilms() {
@@ -24,6 +42,40 @@ public class FilmController {
         return filmService.getAllFilms();
     }
 
+    @GetMapping(params = "limit")
+    public List<Film> getFilmsPage(@RequestParam(defaultValue = "0") long after,
+                                   @RequestParam int limit) throws ValidationException {
+        log.info("Запрос на получение страницы фильмов после идентификатора {}.", after);
+        return filmService.getFilmsPage(after, limit);
+    }
+
+    @GetMapping(params = {"after", "!limit"})
+    public List<Film> getFilmsPage(@RequestParam long after) throws ValidationException {
+        return getFilmsPage(after, DEFAULT_PAGE_SIZE);
+    }
+
+    @GetMapping(params = "ids")
+    public LookupResult<Film> getFilmsByIds(@RequestParam List<Long> ids) throws ValidationException {
+        log.info("Запрос на получение фильмов по {} идентификаторам.", ids.size());
+        return filmService.getFilmsByIds(ids);
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamFilms() {
+        log.info("Запрос на выгрузку всех фильмов.");
+        StreamingResponseBody body = out -> filmService.forEachFilm(film -> {
+            try {
+                out.write(objectMapper.writeValueAsBytes(film));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
     @PostMapping
     public Film create(@RequestBody Film film) throws ValidationException, ResourceNotFoundException {
         filmService.addFilm(film);
@@ -57,9 +109,29 @@ public class FilmController {
         filmService.removeLike(filmId, userId);
     }
 
+    @PostMapping("/likes")
+    public List<LikeOperationResult> applyLikes(@RequestBody List<LikeOperation> operations) throws ValidationException {
+        return filmService.applyLikes(operations);
+    }
+
+    @GetMapping("/search")
+    public List<Film> searchFilms(@RequestParam String query, @RequestParam(defaultValue = "10") int count)
+            throws ValidationException {
+        log.info("Пользователь ищет фильмы по запросу: {}", query);
+        return filmService.searchFilms(query, count);
+    }
+
     @GetMapping("/popular")
-    public List<Film> getTopFilms(@RequestParam(defaultValue = "10") int count) {
-        return filmService.getTopFilms(count);
+    public void writeTopFilms(@RequestParam(defaultValue = "10") int count,
+                              @RequestParam(required = false) Integer genreId,
+                              @RequestParam(required = false) Integer year,
+                              HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (count > FilmLeaderboard.TOP_WINDOW) {
+            responseCache.writeUncached(response, filmService.getTopFilms(count, genreId, year));
+            return;
+        }
+        responseCache.write(request, response, "popular:" + count + ":" + genreId + ":" + year,
+                entityVersions.popularTag(count, genreId, year), () -> filmService.getTopFilms(count, genreId, year));
     }
 
     public void deleteAllFilms() {
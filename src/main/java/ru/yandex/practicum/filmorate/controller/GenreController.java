@@ -1,5 +1,7 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -7,25 +9,27 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import ru.yandex.practicum.filmorate.exceptions.ResourceNotFoundException;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.service.DictionaryService;
 
-import java.util.List;
+import java.io.IOException;
 
 @RestController
 @RequestMapping("/genres")
 @RequiredArgsConstructor
 public class GenreController {
 
+    private final DictionaryService dictionaryService;
+    private final ResponseCache responseCache;
+
     @GetMapping
-    public List<Genre> getGenres() {
-        return Genre.values();
+    public void writeGenres(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        responseCache.write(request, response, "genres", dictionaryService.getVersion(),
+                dictionaryService::getGenres);
     }
 
     @GetMapping("/{id}")
     public Genre getGenreById(@PathVariable int id) throws ResourceNotFoundException {
-        if (id < 1 || id > Genre.values().size()) {
-            throw new ResourceNotFoundException("Жанр не найден");
-        }
-        return Genre.values().get(id - 1);
+        return dictionaryService.getGenreById(id);
     }
 
 }
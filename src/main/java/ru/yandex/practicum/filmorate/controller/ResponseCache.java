@@ -0,0 +1,157 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Кэш готовых JSON-ответов для часто запрашиваемых данных: байты ответа (и, если включено, их
+ * gzip-версия) сохраняются вместе с версией данных и пишутся прямо в поток ответа, без повторной
+ * сериализации. Запись считается устаревшей, как только версия данных поменялась, поэтому сбрасывать
+ * кэш отдельно не нужно: версии меняют сервисы при каждой записи. Хранится ограниченное количество
+ * ответов, давно не запрашивавшиеся вытесняются (LRU).
+ */
+@Component
+public class ResponseCache {
+
+    private static final int MIN_GZIP_SIZE = 1024;
+
+    private final ObjectMapper objectMapper;
+    private final int maxSize;
+    private final boolean gzip;
+
+    private final Map<String, CachedResponse> entries;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public ResponseCache(ObjectMapper objectMapper,
+                         @Value("${filmorate.cache.responses.max-size:1000}") int maxSize,
+                         @Value("${filmorate.cache.responses.gzip:true}") boolean gzip) {
+        this.objectMapper = objectMapper;
+        this.maxSize = maxSize;
+        this.gzip = gzip;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResponse> eldest) {
+                return size() > ResponseCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * Пишет ответ для ключа из кэша, а если его там нет или он построен по другой версии данных,
+     * сериализует {@code body} и сохраняет результат. Версию нужно получить до чтения данных.
+     */
+    public void write(HttpServletRequest request, HttpServletResponse response, String key, String version,
+                      Supplier<?> body) throws IOException {
+        CachedResponse cached = get(key, version);
+        if (cached == null) {
+            misses.increment();
+            cached = encode(version, body.get());
+            if (maxSize > 0) {
+                put(key, cached);
+            }
+        } else {
+            hits.increment();
+        }
+
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        byte[] bytes = cached.json();
+        if (cached.gzip() != null) {
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            if (acceptsGzip(request)) {
+                response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+                bytes = cached.gzip();
+                // Сжатый ответ побайтно отличается от несжатого, поэтому строгий ETag для него становится слабым
+                String etag = response.getHeader(HttpHeaders.ETAG);
+                if (etag != null && etag.startsWith("\"")) {
+                    response.setHeader(HttpHeaders.ETAG, "W/" + etag);
+                }
+            }
+        }
+        response.setContentLength(bytes.length);
+        response.getOutputStream().write(bytes);
+    }
+
+    /**
+     * Сериализует ответ, не сохраняя его: для запросов, которые кэшировать не имеет смысла.
+     */
+    public void writeUncached(HttpServletResponse response, Object body) throws IOException {
+        byte[] bytes = objectMapper.writeValueAsBytes(body);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(bytes.length);
+        response.getOutputStream().write(bytes);
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private CachedResponse get(String key, String version) {
+        lock.lock();
+        try {
+            CachedResponse cached = entries.get(key);
+            return cached != null && cached.version().equals(version) ? cached : null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void put(String key, CachedResponse cached) {
+        lock.lock();
+        try {
+            entries.put(key, cached);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private CachedResponse encode(String version, Object body) throws IOException {
+        byte[] json = objectMapper.writeValueAsBytes(body);
+        if (!gzip || json.length < MIN_GZIP_SIZE) {
+            return new CachedResponse(version, json, null);
+        }
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(json.length / 4);
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(json);
+        }
+        return new CachedResponse(version, json, compressed.toByteArray());
+    }
+
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        return acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+    }
+
+    private record CachedResponse(String version, byte[] json, byte[] gzip) {
+    }
+
+}
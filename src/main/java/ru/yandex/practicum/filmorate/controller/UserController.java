@@ -1,15 +1,26 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.yandex.practicum.filmorate.exceptions.ResourceNotFoundException;
 import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FriendRecommendation;
+import ru.yandex.practicum.filmorate.model.LookupResult;
+import ru.yandex.practicum.filmorate.model.MutualFriendsCount;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
 import ru.yandex.practicum.filmorate.service.UserService;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 @RestController
@@ -18,7 +29,11 @@ import java.util.List;
 @RequiredArgsConstructor
 public class UserController {
 
+    private static final int DEFAULT_PAGE_SIZE = 100;
+
     private final UserService userService;
+    private final FilmService filmService;
+    private final ObjectMapper objectMapper;
 
     @GetMapping
     public List<User> getUsers() {
@@ -26,6 +41,40 @@ public class UserController {
         return userService.getAllUsers();
     }
 
+    @GetMapping(params = "limit")
+    public List<User> getUsersPage(@RequestParam(defaultValue = "0") long after,
+                                   @RequestParam int limit) throws ValidationException {
+        log.info("Пользователь запросил страницу пользователей после идентификатора {}.", after);
+        return userService.getUsersPage(after, limit);
+    }
+
+    @GetMapping(params = {"after", "!limit"})
+    public List<User> getUsersPage(@RequestParam long after) throws ValidationException {
+        return getUsersPage(after, DEFAULT_PAGE_SIZE);
+    }
+
+    @GetMapping(params = "ids")
+    public LookupResult<User> getUsersByIds(@RequestParam List<Long> ids) throws ValidationException {
+        log.info("Пользователь запросил пользователей по {} идентификаторам.", ids.size());
+        return userService.getUsersByIds(ids);
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamUsers() {
+        log.info("Пользователь запросил выгрузку всех пользователей.");
+        StreamingResponseBody body = out -> userService.forEachUser(user -> {
+            try {
+                out.write(objectMapper.writeValueAsBytes(user));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
     @PostMapping
     public User create(@RequestBody @Valid User user) throws ValidationException {
         userService.addUser(user);
@@ -67,6 +116,25 @@ public class UserController {
         return userService.getCommonFriends(userId, otherUserId);
     }
 
+    @GetMapping("/{id}/friends/mutual")
+    public List<MutualFriendsCount> getMutualFriendCounts(@PathVariable long id, @RequestParam List<Long> ids)
+            throws ResourceNotFoundException, ValidationException {
+        return userService.getMutualFriendCounts(id, ids);
+    }
+
+    @GetMapping("/{id}/recommendations")
+    public List<FriendRecommendation> getRecommendations(@PathVariable long id,
+                                                         @RequestParam(defaultValue = "10") int count)
+            throws ResourceNotFoundException, ValidationException {
+        return userService.getRecommendations(id, count);
+    }
+
+    @GetMapping("/{id}/films/recommended")
+    public List<Film> getRecommendedFilms(@PathVariable long id, @RequestParam(defaultValue = "10") int count)
+            throws ResourceNotFoundException, ValidationException {
+        return filmService.getRecommendedFilms(id, count);
+    }
+
     @GetMapping("/{id}/friends")
     public List<User> getFriends(@PathVariable long id) throws ResourceNotFoundException {
         return userService.getFriends(id);
@@ -0,0 +1,75 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.controller.ResponseCache;
+import ru.yandex.practicum.filmorate.service.LikeWriteBuffer;
+import ru.yandex.practicum.filmorate.storage.CachingFilmStorage;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Публикует показатели, которые компоненты приложения считают сами: отложенную запись лайков,
+ * кэш фильмов и кэш готовых ответов.
+ */
+@Component
+@RequiredArgsConstructor
+public class FilmorateMetrics implements MeterBinder {
+
+    private final LikeWriteBuffer likeWriteBuffer;
+    private final Optional<CachingFilmStorage> filmCache;
+    private final ResponseCache responseCache;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (likeWriteBuffer.isEnabled()) {
+            Gauge.builder("filmorate.likes.write-behind.pending", likeWriteBuffer, LikeWriteBuffer::getPendingCount)
+                    .description("Изменения лайков, ещё не записанные в хранилище")
+                    .register(registry);
+            FunctionCounter.builder("filmorate.likes.write-behind.flushes", likeWriteBuffer,
+                            LikeWriteBuffer::getFlushCount)
+                    .description("Сбросы буфера лайков в хранилище")
+                    .register(registry);
+            FunctionCounter.builder("filmorate.likes.write-behind.flushed", likeWriteBuffer,
+                            LikeWriteBuffer::getFlushedOperations)
+                    .description("Изменения лайков, записанные в хранилище")
+                    .register(registry);
+            TimeGauge.builder("filmorate.likes.write-behind.last-flush", likeWriteBuffer, TimeUnit.MILLISECONDS,
+                            LikeWriteBuffer::getLastFlushMillis)
+                    .description("Длительность последнего сброса буфера лайков")
+                    .register(registry);
+        }
+
+        filmCache.ifPresent(cache -> {
+            FunctionCounter.builder("cache.gets", cache, CachingFilmStorage::getHitCount)
+                    .tags("cache", "films", "result", "hit")
+                    .register(registry);
+            FunctionCounter.builder("cache.gets", cache, CachingFilmStorage::getMissCount)
+                    .tags("cache", "films", "result", "miss")
+                    .register(registry);
+            FunctionCounter.builder("cache.evictions", cache, CachingFilmStorage::getEvictionCount)
+                    .tag("cache", "films")
+                    .register(registry);
+            Gauge.builder("cache.size", cache, CachingFilmStorage::size)
+                    .tag("cache", "films")
+                    .register(registry);
+        });
+
+        FunctionCounter.builder("cache.gets", responseCache, ResponseCache::getHitCount)
+                .tags("cache", "responses", "result", "hit")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", responseCache, ResponseCache::getMissCount)
+                .tags("cache", "responses", "result", "miss")
+                .register(registry);
+        Gauge.builder("cache.size", responseCache, ResponseCache::size)
+                .tag("cache", "responses")
+                .register(registry);
+    }
+
+}
@@ -0,0 +1,91 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.SqlProvider;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Журнал медленных запросов: вызовы {@code JdbcTemplate}, выполнявшиеся дольше порога,
+ * пишутся в лог вместе с текстом запроса и параметрами и считаются в {@value #SLOW_QUERIES}.
+ * Нулевой порог отключает журнал.
+ */
+@Aspect
+@Component
+@Slf4j
+public class SlowQueryLog {
+
+    static final String SLOW_QUERIES = "filmorate.jdbc.slow-queries";
+    private static final int MAX_PARAMETERS_LENGTH = 1000;
+
+    private final long thresholdNanos;
+    private final Counter slowQueries;
+
+    public SlowQueryLog(MeterRegistry meterRegistry,
+                        @Value("${filmorate.metrics.slow-query-threshold:PT0.5S}") Duration threshold) {
+        this.thresholdNanos = threshold.toNanos();
+        this.slowQueries = Counter.builder(SLOW_QUERIES)
+                .description("Запросы к базе, выполнявшиеся дольше порога")
+                .register(meterRegistry);
+    }
+
+    @Around("execution(public * org.springframework.jdbc.core.JdbcOperations.*(..))")
+    public Object logSlowQuery(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (thresholdNanos <= 0) {
+            return joinPoint.proceed();
+        }
+        long startedAt = System.nanoTime();
+        try {
+            return joinPoint.proceed();
+        } finally {
+            long elapsed = System.nanoTime() - startedAt;
+            if (elapsed >= thresholdNanos) {
+                slowQueries.increment();
+                Object[] args = joinPoint.getArgs();
+                log.warn("Медленный запрос, {} мс: {}; параметры: {}", TimeUnit.NANOSECONDS.toMillis(elapsed),
+                        sql(args), parameters(args));
+            }
+        }
+    }
+
+    private static String sql(Object[] args) {
+        if (args.length > 0 && args[0] instanceof String sql) {
+            return sql;
+        }
+        if (args.length > 0 && args[0] instanceof SqlProvider provider && provider.getSql() != null) {
+            return provider.getSql();
+        }
+        return "<текст запроса недоступен>";
+    }
+
+    private static String parameters(Object[] args) {
+        for (int i = args.length - 1; i > 0; i--) {
+            if (args[i] instanceof Object[] values) {
+                return truncate(Arrays.deepToString(values));
+            }
+            if (args[i] instanceof BatchPreparedStatementSetter setter) {
+                return "пакет из " + setter.getBatchSize();
+            }
+            if (args[i] instanceof Collection<?> batch) {
+                return "пакет из " + batch.size();
+            }
+        }
+        return "[]";
+    }
+
+    private static String truncate(String value) {
+        return value.length() <= MAX_PARAMETERS_LENGTH ? value : value.substring(0, MAX_PARAMETERS_LENGTH) + "...";
+    }
+
+}
@@ -0,0 +1,116 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Метрики каждого метода хранилищ фильмов и пользователей: время выполнения и число вызовов
+ * ({@value #OPERATIONS}), количество возвращённых записей ({@value #ROWS}) и ошибки ({@value #ERRORS}).
+ * Метрики помечаются классом хранилища и методом, поэтому кэширующая обёртка и хранилище в базе
+ * видны по отдельности.
+ */
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class StorageMetricsAspect {
+
+    static final String OPERATIONS = "filmorate.storage.operations";
+    static final String ROWS = "filmorate.storage.rows";
+    static final String ERRORS = "filmorate.storage.errors";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<StorageMethod, Meters> meters = new ConcurrentHashMap<>();
+
+    @Around("execution(* ru.yandex.practicum.filmorate.storage.FilmStorage.*(..)) || " +
+            "execution(* ru.yandex.practicum.filmorate.storage.UserStorage.*(..))")
+    public Object measure(ProceedingJoinPoint joinPoint) throws Throwable {
+        Meters methodMeters = meters.computeIfAbsent(
+                new StorageMethod(AopUtils.getTargetClass(joinPoint.getTarget()),
+                        ((MethodSignature) joinPoint.getSignature()).getMethod()),
+                this::register);
+        long startedAt = System.nanoTime();
+        try {
+            Object result = joinPoint.proceed();
+            if (methodMeters.rows() != null) {
+                methodMeters.rows().record(rowCount(result));
+            }
+            return result;
+        } catch (Throwable e) {
+            methodMeters.errors().increment();
+            throw e;
+        } finally {
+            methodMeters.operations().record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Meters register(StorageMethod storageMethod) {
+        String storage = storageMethod.storageClass().getSimpleName();
+        String method = storageMethod.method().getName();
+        Timer operations = Timer.builder(OPERATIONS)
+                .description("Время выполнения операций хранилища")
+                .tag("storage", storage)
+                .tag("method", method)
+                .register(meterRegistry);
+        Counter errors = Counter.builder(ERRORS)
+                .description("Операции хранилища, завершившиеся ошибкой")
+                .tag("storage", storage)
+                .tag("method", method)
+                .register(meterRegistry);
+        DistributionSummary rows = null;
+        if (returnsRows(storageMethod.method().getReturnType())) {
+            rows = DistributionSummary.builder(ROWS)
+                    .description("Количество записей, возвращённых хранилищем")
+                    .baseUnit("rows")
+                    .tag("storage", storage)
+                    .tag("method", method)
+                    .register(meterRegistry);
+        }
+        return new Meters(operations, errors, rows);
+    }
+
+    private static boolean returnsRows(Class<?> returnType) {
+        if (returnType.isArray()) {
+            return returnType.getComponentType() != boolean.class;
+        }
+        return !returnType.isPrimitive() && returnType != Boolean.class && returnType != String.class;
+    }
+
+    private static int rowCount(Object result) {
+        if (result == null) {
+            return 0;
+        }
+        if (result instanceof Collection<?> collection) {
+            return collection.size();
+        }
+        if (result instanceof Map<?, ?> map) {
+            return map.size();
+        }
+        if (result.getClass().isArray()) {
+            return Array.getLength(result);
+        }
+        return 1;
+    }
+
+    private record StorageMethod(Class<?> storageClass, Method method) {
+    }
+
+    private record Meters(Timer operations, Counter errors, DistributionSummary rows) {
+    }
+
+}
@@ -1,30 +1,19 @@
 package ru.yandex.practicum.filmorate.model;
 
-import lombok.AllArgsConstructor;
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Value;
 
-import java.util.Arrays;
-import java.util.List;
-
-@Data
-@AllArgsConstructor
-@NoArgsConstructor
+@Value
 public class Genre {
 
-    private int id;
-    private String name;
+    int id;
+    String name;
 
-    public static List<Genre> values() {
-        return Arrays.asList(
-                new Genre(1, "Комедия"),
-                new Genre(2, "Драма"),
-                new Genre(3, "Мультфильм"),
-                new Genre(4, "Триллер"),
-                new Genre(5, "Документальный"),
-                new Genre(6, "Боевик")
-        );
+    @JsonCreator
+    public Genre(@JsonProperty("id") int id, @JsonProperty("name") String name) {
+        this.id = id;
+        this.name = name;
     }
 
 }
-
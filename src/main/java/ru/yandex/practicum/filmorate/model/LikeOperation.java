@@ -0,0 +1,21 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class LikeOperation {
+
+    private long filmId;
+    private long userId;
+    private Action op;
+
+    public enum Action {
+        LIKE,
+        UNLIKE
+    }
+
+}
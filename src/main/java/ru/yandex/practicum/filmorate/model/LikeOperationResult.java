@@ -0,0 +1,24 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class LikeOperationResult {
+
+    private long filmId;
+    private long userId;
+    private LikeOperation.Action op;
+    private Status status;
+
+    public enum Status {
+        APPLIED,
+        UNCHANGED,
+        FILM_NOT_FOUND,
+        USER_NOT_FOUND
+    }
+
+}
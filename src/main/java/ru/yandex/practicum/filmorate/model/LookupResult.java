@@ -0,0 +1,21 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Результат поиска по списку идентификаторов: найденные записи в порядке запроса
+ * и идентификаторы, для которых ничего не нашлось.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class LookupResult<T> {
+
+    private List<T> items;
+    private List<Long> missingIds;
+
+}
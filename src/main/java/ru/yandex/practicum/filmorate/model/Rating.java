@@ -1,28 +1,19 @@
 package ru.yandex.practicum.filmorate.model;
 
-import lombok.AllArgsConstructor;
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Value;
 
-import java.util.Arrays;
-import java.util.List;
-
-@Data
-@AllArgsConstructor
-@NoArgsConstructor
+@Value
 public class Rating {
 
-    private int id;
-    private String name;
+    int id;
+    String name;
 
-    public static List<Rating> values() {
-        return Arrays.asList(
-                new Rating(1, "G"),
-                new Rating(2, "PG"),
-                new Rating(3, "PG-13"),
-                new Rating(4, "R"),
-                new Rating(5, "NC-17")
-        );
+    @JsonCreator
+    public Rating(@JsonProperty("id") int id, @JsonProperty("name") String name) {
+        this.id = id;
+        this.name = name;
     }
 
 }
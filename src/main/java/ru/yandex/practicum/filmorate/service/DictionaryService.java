@@ -0,0 +1,84 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exceptions.ResourceNotFoundException;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Rating;
+import ru.yandex.practicum.filmorate.storage.CachingFilmStorage;
+import ru.yandex.practicum.filmorate.storage.db.DictionaryDbStorage;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Справочники жанров и рейтингов. Читаются из загруженных в память массивов без обращения к базе
+ * и без создания объектов, а таблицы {@code genres} и {@code ratings} периодически перечитываются,
+ * так что изменения в них подхватываются без перезапуска. Жанры и рейтинги входят в ответы с фильмами,
+ * поэтому при изменении справочников сбрасываются кэш фильмов и версии всех фильмов.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class DictionaryService {
+
+    private final DictionaryDbStorage dictionaryDbStorage;
+    private final Optional<CachingFilmStorage> filmCache;
+    private final EntityVersions entityVersions;
+
+    @Scheduled(initialDelayString = "${filmorate.dictionaries.refresh-interval:PT5M}",
+            fixedDelayString = "${filmorate.dictionaries.refresh-interval:PT5M}")
+    public void refresh() {
+        long version = dictionaryDbStorage.getVersion();
+        dictionaryDbStorage.load();
+        if (dictionaryDbStorage.getVersion() != version) {
+            filmCache.ifPresent(CachingFilmStorage::invalidateAll);
+            entityVersions.allFilmsChanged();
+            log.info("Справочники изменились, кэш фильмов сброшен.");
+        }
+    }
+
+    public List<Genre> getGenres() {
+        return dictionaryDbStorage.getGenres();
+    }
+
+    public Genre getGenreById(int id) throws ResourceNotFoundException {
+        Genre genre = dictionaryDbStorage.getGenre(id);
+        if (genre == null) {
+            log.error("Жанр с идентификатором {} не найден.", id);
+            throw new ResourceNotFoundException("Жанр не найден");
+        }
+        return genre;
+    }
+
+    public boolean genreExists(int id) {
+        return dictionaryDbStorage.getGenre(id) != null;
+    }
+
+    public List<Rating> getRatings() {
+        return dictionaryDbStorage.getRatings();
+    }
+
+    public Rating getRatingById(int id) throws ResourceNotFoundException {
+        Rating rating = dictionaryDbStorage.getRating(id);
+        if (rating == null) {
+            log.error("Рейтинг с идентификатором {} не найден.", id);
+            throw new ResourceNotFoundException("Рейтинг не найден");
+        }
+        return rating;
+    }
+
+    public boolean ratingExists(int id) {
+        return dictionaryDbStorage.getRating(id) != null;
+    }
+
+    /**
+     * @return версия справочников: меняется, только когда меняется их содержимое
+     */
+    public String getVersion() {
+        return Long.toString(dictionaryDbStorage.getVersion());
+    }
+
+}
@@ -0,0 +1,85 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Версии данных, которые клиенты перезапрашивают чаще всего: фильма, списка друзей пользователя
+ * и популярных фильмов. По версиям строятся строгие ETag, так что на повторный запрос неизменившихся
+ * данных можно ответить 304, не обращаясь к хранилищу.
+ * <p>
+ * Сервисы меняют версию после записи в хранилище, поэтому ETag, вычисленный до чтения, может
+ * оказаться старше прочитанных данных, но не новее них. Версии хранятся в памяти, и в ETag входит
+ * метка запуска приложения, чтобы после перезапуска они не совпали с выданными раньше.
+ */
+@Component
+@RequiredArgsConstructor
+public class EntityVersions {
+
+    private final FilmLeaderboard filmLeaderboard;
+
+    private final String instance = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<Long, Long> films = new ConcurrentHashMap<>();
+    private final Map<Long, Long> friendLists = new ConcurrentHashMap<>();
+    // Меняются при изменениях, затрагивающих сразу все фильмы или все списки друзей
+    private volatile long allFilms;
+    private volatile long allFriendLists;
+    // Меняется при изменении любого фильма: от содержимого фильмов зависит список популярных
+    private volatile long filmContents;
+
+    public void filmChanged(long filmId) {
+        long version = sequence.incrementAndGet();
+        films.put(filmId, version);
+        filmContents = version;
+    }
+
+    /**
+     * Забывает версию удалённого фильма, чтобы записи об удалённых фильмах не копились в памяти.
+     */
+    public void filmDeleted(long filmId) {
+        filmContents = sequence.incrementAndGet();
+        films.remove(filmId);
+    }
+
+    public void allFilmsChanged() {
+        long version = sequence.incrementAndGet();
+        allFilms = version;
+        filmContents = version;
+        films.clear();
+    }
+
+    public void friendsChanged(long... userIds) {
+        long version = sequence.incrementAndGet();
+        for (long userId : userIds) {
+            friendLists.put(userId, version);
+        }
+    }
+
+    public void allFriendListsChanged() {
+        long version = sequence.incrementAndGet();
+        allFriendLists = version;
+        friendLists.clear();
+    }
+
+    public String filmTag(long filmId) {
+        return tag(allFilms, films.getOrDefault(filmId, 0L));
+    }
+
+    public String friendsTag(long userId) {
+        return tag(allFriendLists, friendLists.getOrDefault(userId, 0L));
+    }
+
+    public String popularTag(int count, Integer genreId, Integer year) {
+        return tag(filmContents, filmLeaderboard.getTopEpoch(count, genreId, year));
+    }
+
+    private String tag(long scope, long version) {
+        return "\"" + instance + "-" + Long.toString(scope, 36) + "-" + Long.toString(version, 36) + "\"";
+    }
+
+}
@@ -0,0 +1,451 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Рейтинг фильмов по количеству лайков, который поддерживается в памяти.
+ * Строится из хранилища при старте и обновляется сервисом при каждом изменении лайков,
+ * поэтому запрос популярных фильмов не обращается к таблице лайков.
+ * Кроме общего рейтинга ведутся отдельные рейтинги по жанру, году выхода и их сочетанию,
+ * так что запрос с фильтрами стоит столько же, сколько запрос без них.
+ * <p>
+ * У каждого рейтинга есть эпоха: она меняется, только когда меняется состав или порядок первых
+ * {@value #TOP_WINDOW} мест, поэтому лайк фильму, не влияющий на верх рейтинга, не сбрасывает
+ * ответы, которые клиенты сохранили по ETag.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class FilmLeaderboard {
+
+    public static final int TOP_WINDOW = 100;
+
+    private final FilmStorage filmStorage;
+
+    private final Map<Long, Entry> entries = new HashMap<>();
+    private final Ranking ranking = new Ranking();
+    private final Map<Integer, Ranking> rankingByGenre = new HashMap<>();
+    private final Map<Integer, Ranking> rankingByYear = new HashMap<>();
+    private final Map<Long, Ranking> rankingByGenreAndYear = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // Общий счётчик изменений: эпохи разных рейтингов не повторяются даже после очистки
+    private long sequence;
+    // Фильмы, чьи лайки менялись, пока из хранилища читался снимок; null, если снимок не читается
+    private Set<Long> changedDuringReload;
+    private final ReentrantLock reloadLock = new ReentrantLock();
+
+    /**
+     * Строит рейтинг из хранилища заново. Для фильмов, лайки которых менялись во время чтения,
+     * сохраняется количество лайков из памяти: снимок мог не увидеть эти изменения.
+     */
+    @PostConstruct
+    public void rebuild() {
+        List<Entry> loaded = new ArrayList<>();
+        reloadLock.lock();
+        try {
+            startRecordingChanges();
+            Map<Long, Long> likesCounts = filmStorage.getLikesCounts();
+            filmStorage.forEachFilm(film -> loaded.add(new Entry(
+                    new Rank(film.getId(), likesCounts.getOrDefault(film.getId(), 0L)), genreIds(film), year(film))));
+            lock.writeLock().lock();
+            try {
+                Map<Long, Long> changedLikes = new HashMap<>();
+                for (long filmId : changedDuringReload) {
+                    Entry entry = entries.get(filmId);
+                    if (entry != null) {
+                        changedLikes.put(filmId, entry.rank().likes());
+                    }
+                }
+                clearRankings();
+                for (Entry entry : loaded) {
+                    Long likes = changedLikes.get(entry.rank().filmId());
+                    put(likes == null ? entry
+                            : new Entry(new Rank(entry.rank().filmId(), likes), entry.genreIds(), entry.year()));
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            stopRecordingChanges();
+            reloadLock.unlock();
+        }
+        log.info("Рейтинг фильмов построен, фильмов в рейтинге: {}", loaded.size());
+    }
+
+    /**
+     * Перечитывает из хранилища только количество лайков, не трогая жанры и годы выхода.
+     * Фильмы, лайки которых менялись во время чтения, не трогаются: снимок мог не увидеть эти изменения.
+     */
+    public void reloadLikes() {
+        reloadLock.lock();
+        try {
+            startRecordingChanges();
+            Map<Long, Long> likesCounts = filmStorage.getLikesCounts();
+            lock.writeLock().lock();
+            try {
+                for (Entry entry : List.copyOf(entries.values())) {
+                    long filmId = entry.rank().filmId();
+                    long likes = likesCounts.getOrDefault(filmId, 0L);
+                    if (likes != entry.rank().likes() && !changedDuringReload.contains(filmId)) {
+                        move(entry, new Rank(filmId, likes));
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            stopRecordingChanges();
+            reloadLock.unlock();
+        }
+    }
+
+    public void addFilm(Film film) {
+        lock.writeLock().lock();
+        try {
+            if (!entries.containsKey(film.getId())) {
+                put(new Entry(new Rank(film.getId(), 0L), genreIds(film), year(film)));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Переносит фильм в рейтинги по новым жанрам и году выхода, сохраняя количество лайков.
+     */
+    public void updateFilm(Film film) {
+        lock.writeLock().lock();
+        try {
+            Entry entry = entries.get(film.getId());
+            long likes = entry == null ? 0 : entry.rank().likes();
+            if (entry != null) {
+                remove(entry);
+            }
+            put(new Entry(new Rank(film.getId(), likes), genreIds(film), year(film)));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeFilm(long filmId) {
+        lock.writeLock().lock();
+        try {
+            Entry entry = entries.get(filmId);
+            if (entry != null) {
+                remove(entry);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            clearRankings();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Меняет количество лайков фильма из рейтинга. Фильмы, которых в рейтинге нет (уже удалённые),
+     * пропускаются.
+     */
+    public void changeLikes(long filmId, long delta) {
+        lock.writeLock().lock();
+        try {
+            if (changedDuringReload != null) {
+                changedDuringReload.add(filmId);
+            }
+            Entry entry = entries.get(filmId);
+            if (entry == null) {
+                log.debug("Фильма {} нет в рейтинге, изменение лайков пропущено.", filmId);
+                return;
+            }
+            move(entry, new Rank(filmId, Math.max(0, entry.rank().likes() + delta)));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public long getLikes(long filmId) {
+        lock.readLock().lock();
+        try {
+            Entry entry = entries.get(filmId);
+            return entry == null ? 0 : entry.rank().likes();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Long> getTopFilmIds(int count) {
+        return getTopFilmIds(count, null, null);
+    }
+
+    /**
+     * @param genreId жанр или null, чтобы не фильтровать по жанру
+     * @param year    год выхода или null, чтобы не фильтровать по году
+     */
+    public List<Long> getTopFilmIds(int count, Integer genreId, Integer year) {
+        lock.readLock().lock();
+        try {
+            Ranking source = select(genreId, year);
+            if (source == null) {
+                return new ArrayList<>();
+            }
+
+            List<Long> filmIds = new ArrayList<>(Math.min(Math.max(count, 0), source.ranks.size()));
+            for (Rank rank : source.ranks) {
+                if (filmIds.size() >= count) {
+                    break;
+                }
+                filmIds.add(rank.filmId());
+            }
+            return filmIds;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Эпоха рейтинга для запроса первых {@code count} мест: не меняется, пока не меняется ответ
+     * {@link #getTopFilmIds(int, Integer, Integer)} с теми же параметрами. Для запросов длиннее
+     * {@value #TOP_WINDOW} мест меняется при любом изменении рейтинга. Пустой рейтинг имеет эпоху 0.
+     */
+    public long getTopEpoch(int count, Integer genreId, Integer year) {
+        lock.readLock().lock();
+        try {
+            Ranking source = select(genreId, year);
+            if (source == null) {
+                return 0;
+            }
+            return count <= TOP_WINDOW ? source.epoch : source.version;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void startRecordingChanges() {
+        lock.writeLock().lock();
+        try {
+            changedDuringReload = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void stopRecordingChanges() {
+        lock.writeLock().lock();
+        try {
+            changedDuringReload = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private Ranking select(Integer genreId, Integer year) {
+        if (genreId == null && year == null) {
+            return ranking;
+        } else if (year == null) {
+            return rankingByGenre.get(genreId);
+        } else if (genreId == null) {
+            return rankingByYear.get(year);
+        }
+        return rankingByGenreAndYear.get(genreAndYear(genreId, year));
+    }
+
+    private void put(Entry entry) {
+        Rank rank = entry.rank();
+        entries.put(rank.filmId(), entry);
+        ranking.add(rank);
+        for (int genreId : entry.genreIds()) {
+            rankingByGenre.computeIfAbsent(genreId, k -> new Ranking()).add(rank);
+        }
+        if (entry.year() != 0) {
+            rankingByYear.computeIfAbsent(entry.year(), k -> new Ranking()).add(rank);
+            for (int genreId : entry.genreIds()) {
+                rankingByGenreAndYear.computeIfAbsent(genreAndYear(genreId, entry.year()), k -> new Ranking())
+                        .add(rank);
+            }
+        }
+    }
+
+    private void remove(Entry entry) {
+        Rank rank = entry.rank();
+        entries.remove(rank.filmId());
+        ranking.remove(rank);
+        for (int genreId : entry.genreIds()) {
+            removeFrom(rankingByGenre, genreId, rank);
+        }
+        if (entry.year() != 0) {
+            removeFrom(rankingByYear, entry.year(), rank);
+            for (int genreId : entry.genreIds()) {
+                removeFrom(rankingByGenreAndYear, genreAndYear(genreId, entry.year()), rank);
+            }
+        }
+    }
+
+    /**
+     * Меняет количество лайков фильма, оставляя его в тех же рейтингах.
+     */
+    private void move(Entry entry, Rank rank) {
+        Rank previous = entry.rank();
+        entries.put(rank.filmId(), new Entry(rank, entry.genreIds(), entry.year()));
+        ranking.move(previous, rank);
+        for (int genreId : entry.genreIds()) {
+            rankingByGenre.get(genreId).move(previous, rank);
+        }
+        if (entry.year() != 0) {
+            rankingByYear.get(entry.year()).move(previous, rank);
+            for (int genreId : entry.genreIds()) {
+                rankingByGenreAndYear.get(genreAndYear(genreId, entry.year())).move(previous, rank);
+            }
+        }
+    }
+
+    private <K> void removeFrom(Map<K, Ranking> rankings, K key, Rank rank) {
+        Ranking ranks = rankings.get(key);
+        if (ranks != null) {
+            ranks.remove(rank);
+            if (ranks.ranks.isEmpty()) {
+                rankings.remove(key);
+            }
+        }
+    }
+
+    private void clearRankings() {
+        entries.clear();
+        ranking.clear();
+        rankingByGenre.clear();
+        rankingByYear.clear();
+        rankingByGenreAndYear.clear();
+    }
+
+    private static long genreAndYear(int genreId, int year) {
+        return ((long) genreId << 32) | (year & 0xFFFFFFFFL);
+    }
+
+    private static int[] genreIds(Film film) {
+        if (film.getGenres() == null) {
+            return new int[0];
+        }
+        return film.getGenres().stream()
+                .mapToInt(Genre::getId)
+                .distinct()
+                .toArray();
+    }
+
+    private static int year(Film film) {
+        return film.getReleaseDate() == null ? 0 : LocalDate.parse(film.getReleaseDate()).getYear();
+    }
+
+    private record Entry(Rank rank, int[] genreIds, int year) {
+    }
+
+    /**
+     * Один рейтинг с границей первых {@value #TOP_WINDOW} мест. Граница позволяет за логарифмическое
+     * время понять, задело ли изменение верх рейтинга, не пересчитывая позиции.
+     */
+    private final class Ranking {
+
+        private final NavigableSet<Rank> ranks = new TreeSet<>();
+        // Последнее место в окне или null, пока в рейтинге меньше TOP_WINDOW фильмов
+        private Rank boundary;
+        private long epoch;
+        private long version;
+
+        void add(Rank rank) {
+            ranks.add(rank);
+            touch(enterWindow(rank));
+        }
+
+        void remove(Rank rank) {
+            if (ranks.remove(rank)) {
+                touch(leaveWindow(rank));
+            }
+        }
+
+        void move(Rank from, Rank to) {
+            Rank before = ranks.lower(from);
+            ranks.remove(from);
+            boolean wasInWindow = leaveWindow(from);
+            ranks.add(to);
+            boolean inWindow = enterWindow(to);
+            touch(wasInWindow != inWindow || inWindow && !Objects.equals(before, ranks.lower(to)));
+        }
+
+        void clear() {
+            ranks.clear();
+            boundary = null;
+            touch(true);
+        }
+
+        /**
+         * Сдвигает границу после добавления позиции.
+         *
+         * @return попала ли позиция в окно
+         */
+        private boolean enterWindow(Rank rank) {
+            if (ranks.size() < TOP_WINDOW) {
+                return true;
+            }
+            if (ranks.size() == TOP_WINDOW) {
+                boundary = ranks.last();
+                return true;
+            }
+            if (rank.compareTo(boundary) < 0) {
+                boundary = ranks.lower(boundary);
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Сдвигает границу после удаления позиции.
+         *
+         * @return была ли позиция в окне
+         */
+        private boolean leaveWindow(Rank rank) {
+            if (boundary == null) {
+                return true;
+            }
+            boolean wasInWindow = rank.compareTo(boundary) <= 0;
+            if (ranks.size() < TOP_WINDOW) {
+                boundary = null;
+            } else if (wasInWindow) {
+                boundary = ranks.higher(boundary);
+            }
+            return wasInWindow;
+        }
+
+        private void touch(boolean windowChanged) {
+            version = ++sequence;
+            if (windowChanged) {
+                epoch = version;
+            }
+        }
+    }
+
+    private record Rank(long filmId, long likes) implements Comparable<Rank> {
+
+        @Override
+        public int compareTo(Rank other) {
+            int byLikes = Long.compare(other.likes, likes);
+            return byLikes != 0 ? byLikes : Long.compare(filmId, other.filmId);
+        }
+    }
+
+}
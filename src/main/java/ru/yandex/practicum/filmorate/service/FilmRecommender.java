@@ -0,0 +1,168 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.SortedAdjacency;
+import ru.yandex.practicum.filmorate.storage.SortedIds;
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Рекомендации фильмов по лайкам похожих пользователей. Матрица лайков хранится в памяти
+ * в двух направлениях (фильмы пользователя и пользователи фильма) в виде отсортированных массивов,
+ * строится из хранилища при старте и обновляется сервисами при каждом изменении лайков.
+ * Для запроса находятся пользователи с наибольшим числом общих лайков, и предлагаются
+ * понравившиеся им фильмы, которых у пользователя ещё нет.
+ */
+@Component
+@Slf4j
+public class FilmRecommender {
+
+    public static final int MAX_RECOMMENDATIONS = 100;
+    /**
+     * Наибольшее число пользователей, с которыми сравнивается пользователь за один запрос.
+     * Лимит делится поровну между его фильмами, так что пользователь с тысячами лайков
+     * не превращает запрос в обход всех пользователей, а кандидаты берутся по всем его фильмам.
+     */
+    static final int MAX_CANDIDATES = 10_000;
+    private static final int PARALLEL_THRESHOLD = 1024;
+
+    private final FilmStorage filmStorage;
+    private final int maxFanOut;
+    private final int maxNeighbours;
+
+    private final SortedAdjacency filmsByUser = new SortedAdjacency();
+    private final SortedAdjacency usersByFilm = new SortedAdjacency();
+
+    public FilmRecommender(FilmStorage filmStorage,
+                           @Value("${filmorate.recommendations.films.max-fan-out:1000}") int maxFanOut,
+                           @Value("${filmorate.recommendations.films.max-neighbours:50}") int maxNeighbours) {
+        this.filmStorage = filmStorage;
+        this.maxFanOut = maxFanOut;
+        this.maxNeighbours = maxNeighbours;
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        Map<Long, SortedIds.Builder> films = new HashMap<>();
+        Map<Long, SortedIds.Builder> users = new HashMap<>();
+        filmStorage.forEachLike((filmId, userId) -> {
+            films.computeIfAbsent(userId, k -> new SortedIds.Builder()).add(filmId);
+            users.computeIfAbsent(filmId, k -> new SortedIds.Builder()).add(userId);
+        });
+        filmsByUser.clear();
+        usersByFilm.clear();
+        films.forEach((userId, filmIds) -> filmsByUser.set(userId, filmIds.build()));
+        users.forEach((filmId, userIds) -> usersByFilm.set(filmId, userIds.build()));
+        log.info("Индекс лайков для рекомендаций построен: пользователей {}, фильмов {}.", films.size(), users.size());
+    }
+
+    public void addLike(long filmId, long userId) {
+        filmsByUser.add(userId, filmId);
+        usersByFilm.add(filmId, userId);
+    }
+
+    public boolean hasLike(long filmId, long userId) {
+        return filmsByUser.contains(userId, filmId);
+    }
+
+    public void removeLike(long filmId, long userId) {
+        filmsByUser.remove(userId, filmId);
+        usersByFilm.remove(filmId, userId);
+    }
+
+    public void removeFilm(long filmId) {
+        for (long userId : usersByFilm.removeAll(filmId)) {
+            filmsByUser.remove(userId, filmId);
+        }
+    }
+
+    public void removeUser(long userId) {
+        for (long filmId : filmsByUser.removeAll(userId)) {
+            usersByFilm.remove(filmId, userId);
+        }
+    }
+
+    public void clear() {
+        filmsByUser.clear();
+        usersByFilm.clear();
+    }
+
+    /**
+     * @return идентификаторы рекомендуемых фильмов, от более подходящих к менее
+     */
+    public List<Long> recommend(long userId, int count) {
+        long[] likedFilms = filmsByUser.get(userId);
+        if (likedFilms.length == 0) {
+            return List.of();
+        }
+
+        long[] candidates = findCandidates(userId, likedFilms);
+
+        // Сходство считается независимо для каждого кандидата, поэтому большие наборы делятся между потоками
+        int[] overlaps = new int[candidates.length];
+        IntStream indexes = IntStream.range(0, candidates.length);
+        if (candidates.length >= PARALLEL_THRESHOLD) {
+            indexes = indexes.parallel();
+        }
+        indexes.forEach(i -> overlaps[i] = SortedIds.intersectionSize(likedFilms, filmsByUser.get(candidates[i])));
+
+        Map<Long, Long> scores = new HashMap<>();
+        for (int neighbour : findNeighbours(candidates, overlaps)) {
+            for (long filmId : filmsByUser.get(candidates[neighbour])) {
+                if (Arrays.binarySearch(likedFilms, filmId) < 0) {
+                    scores.merge(filmId, (long) overlaps[neighbour], Long::sum);
+                }
+            }
+        }
+
+        return scores.entrySet().stream()
+                .sorted(Map.Entry.<Long, Long>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(count)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    /**
+     * Собирает пользователей, лайкнувших те же фильмы, но не больше {@link #MAX_CANDIDATES}.
+     */
+    long[] findCandidates(long userId, long[] likedFilms) {
+        int perFilm = Math.min(maxFanOut, Math.max(1, MAX_CANDIDATES / likedFilms.length));
+        Set<Long> candidateSet = new HashSet<>();
+        for (long filmId : likedFilms) {
+            for (long otherUserId : SortedIds.limit(usersByFilm.get(filmId), perFilm)) {
+                if (candidateSet.size() >= MAX_CANDIDATES) {
+                    return candidateSet.stream().mapToLong(Long::longValue).toArray();
+                }
+                if (otherUserId != userId) {
+                    candidateSet.add(otherUserId);
+                }
+            }
+        }
+        return candidateSet.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /**
+     * Отбирает кучей ограниченного размера кандидатов с наибольшим числом общих лайков.
+     */
+    private List<Integer> findNeighbours(long[] candidates, int[] overlaps) {
+        PriorityQueue<Integer> top = new PriorityQueue<>(Comparator.<Integer>comparingInt(i -> overlaps[i])
+                .thenComparing(i -> candidates[i], Comparator.reverseOrder()));
+        for (int i = 0; i < candidates.length; i++) {
+            if (overlaps[i] == 0) {
+                continue;
+            }
+            top.offer(i);
+            if (top.size() > maxNeighbours) {
+                top.poll();
+            }
+        }
+        return new ArrayList<>(top);
+    }
+
+}
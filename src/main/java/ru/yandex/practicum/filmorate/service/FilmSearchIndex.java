@@ -0,0 +1,320 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.SortedIds;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Полнотекстовый поиск фильмов по названию и описанию. Для каждого слова хранится отсортированный
+ * массив идентификаторов фильмов, в названии или описании которых оно встречается. Слова приводятся
+ * к нижнему регистру, «ё» заменяется на «е». Последнее слово запроса ищется как префикс, чтобы
+ * поиск работал при наборе. Совпадение в названии весит больше, чем в описании, а к релевантности
+ * добавляется популярность фильма.
+ * Индекс загружается из хранилища при старте и обновляется сервисом при изменении фильмов.
+ * Массивы идентификаторов неизменяемы, поэтому поиск выполняется без блокировок.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class FilmSearchIndex {
+
+    public static final int MAX_RESULTS = 100;
+
+    private static final int NAME_WEIGHT = 3;
+    private static final int DESCRIPTION_WEIGHT = 1;
+    private static final double POPULARITY_WEIGHT = 0.5;
+    private static final int MIN_PREFIX_LENGTH = 2;
+    // Если под префикс подходит больше слов, их массивы сливаются в один, чтобы проверка фильма не требовала
+    // двоичного поиска по каждому слову
+    private static final int MAX_PREFIX_TERMS = 256;
+
+    private final FilmStorage filmStorage;
+    private final FilmLeaderboard filmLeaderboard;
+
+    private final ConcurrentNavigableMap<String, long[]> nameIndex = new ConcurrentSkipListMap<>();
+    private final ConcurrentNavigableMap<String, long[]> descriptionIndex = new ConcurrentSkipListMap<>();
+    private final Map<Long, Document> documents = new HashMap<>();
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    @PostConstruct
+    public void rebuild() {
+        Map<String, SortedIds.Builder> names = new HashMap<>();
+        Map<String, SortedIds.Builder> descriptions = new HashMap<>();
+        Map<Long, Document> loaded = new HashMap<>();
+        filmStorage.forEachFilm(film -> {
+            Document document = toDocument(film);
+            loaded.put(film.getId(), document);
+            for (String term : document.nameTerms()) {
+                names.computeIfAbsent(term, k -> new SortedIds.Builder()).add(film.getId());
+            }
+            for (String term : document.descriptionTerms()) {
+                descriptions.computeIfAbsent(term, k -> new SortedIds.Builder()).add(film.getId());
+            }
+        });
+
+        writeLock.lock();
+        try {
+            nameIndex.clear();
+            descriptionIndex.clear();
+            documents.clear();
+            names.forEach((term, ids) -> nameIndex.put(term, ids.build()));
+            descriptions.forEach((term, ids) -> descriptionIndex.put(term, ids.build()));
+            documents.putAll(loaded);
+        } finally {
+            writeLock.unlock();
+        }
+        log.info("Поисковый индекс фильмов построен: фильмов {}, слов {}.", loaded.size(),
+                nameIndex.size() + descriptionIndex.size());
+    }
+
+    /**
+     * Добавляет фильм в индекс или заменяет его прежние слова новыми.
+     */
+    public void indexFilm(Film film) {
+        Document document = toDocument(film);
+        writeLock.lock();
+        try {
+            Document previous = documents.put(film.getId(), document);
+            if (previous != null) {
+                unindex(film.getId(), previous);
+            }
+            for (String term : document.nameTerms()) {
+                nameIndex.put(term, insert(nameIndex.get(term), film.getId()));
+            }
+            for (String term : document.descriptionTerms()) {
+                descriptionIndex.put(term, insert(descriptionIndex.get(term), film.getId()));
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public void removeFilm(long filmId) {
+        writeLock.lock();
+        try {
+            Document previous = documents.remove(filmId);
+            if (previous != null) {
+                unindex(filmId, previous);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public void clear() {
+        writeLock.lock();
+        try {
+            nameIndex.clear();
+            descriptionIndex.clear();
+            documents.clear();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * @return идентификаторы фильмов, содержащих все слова запроса, от более подходящих к менее
+     */
+    public List<Long> search(String query, int count) {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty()) {
+            return List.of();
+        }
+        boolean lastIsPrefix = Character.isLetterOrDigit(query.charAt(query.length() - 1));
+
+        List<Postings> postings = new ArrayList<>(tokens.size());
+        for (int i = 0; i < tokens.size(); i++) {
+            String token = tokens.get(i);
+            boolean prefix = lastIsPrefix && i == tokens.size() - 1 && token.length() >= MIN_PREFIX_LENGTH;
+            postings.add(prefix ? findByPrefix(token) : findExact(token));
+        }
+
+        // Кандидатов даёт самое редкое слово, остальные слова только проверяются
+        Postings rarest = Collections.min(postings, Comparator.comparingLong(Postings::size));
+        Map<Long, Integer> relevance = new HashMap<>();
+        for (long[] ids : rarest.descriptionIds()) {
+            for (long id : ids) {
+                relevance.put(id, DESCRIPTION_WEIGHT);
+            }
+        }
+        for (long[] ids : rarest.nameIds()) {
+            for (long id : ids) {
+                relevance.put(id, NAME_WEIGHT);
+            }
+        }
+        for (Postings other : postings) {
+            if (other == rarest || relevance.isEmpty()) {
+                continue;
+            }
+            Iterator<Map.Entry<Long, Integer>> iterator = relevance.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<Long, Integer> entry = iterator.next();
+                int weight = other.weight(entry.getKey());
+                if (weight == 0) {
+                    iterator.remove();
+                } else {
+                    entry.setValue(entry.getValue() + weight);
+                }
+            }
+        }
+
+        // Куча с худшим результатом наверху, при равенстве выше фильм с меньшим идентификатором
+        PriorityQueue<Map.Entry<Long, Double>> top = new PriorityQueue<>(
+                Map.Entry.<Long, Double>comparingByValue()
+                        .thenComparing(Map.Entry.<Long, Double>comparingByKey().reversed()));
+        for (Map.Entry<Long, Integer> entry : relevance.entrySet()) {
+            double score = entry.getValue() + POPULARITY_WEIGHT * Math.log1p(filmLeaderboard.getLikes(entry.getKey()));
+            top.offer(Map.entry(entry.getKey(), score));
+            if (top.size() > count) {
+                top.poll();
+            }
+        }
+        Long[] filmIds = new Long[top.size()];
+        for (int i = filmIds.length - 1; i >= 0; i--) {
+            filmIds[i] = top.poll().getKey();
+        }
+        return Arrays.asList(filmIds);
+    }
+
+    /**
+     * Разбивает текст на слова из букв и цифр, приводя их к нижнему регистру и заменяя «ё» на «е».
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                c = Character.toLowerCase(c);
+                token.append(c == 'ё' ? 'е' : c);
+            } else if (!token.isEmpty()) {
+                tokens.add(token.toString());
+                token.setLength(0);
+            }
+        }
+        return tokens;
+    }
+
+    private Postings findExact(String token) {
+        long[] nameIds = nameIndex.get(token);
+        long[] descriptionIds = descriptionIndex.get(token);
+        return new Postings(nameIds == null ? List.of() : List.of(nameIds),
+                descriptionIds == null ? List.of() : List.of(descriptionIds));
+    }
+
+    private Postings findByPrefix(String prefix) {
+        return new Postings(withPrefix(nameIndex, prefix), withPrefix(descriptionIndex, prefix));
+    }
+
+    private List<long[]> withPrefix(ConcurrentNavigableMap<String, long[]> index, String prefix) {
+        List<long[]> postings = new ArrayList<>(
+                index.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values());
+        if (postings.size() <= MAX_PREFIX_TERMS) {
+            return postings;
+        }
+        SortedIds.Builder merged = new SortedIds.Builder();
+        for (long[] ids : postings) {
+            for (long id : ids) {
+                merged.add(id);
+            }
+        }
+        return List.of(merged.build());
+    }
+
+    private void unindex(long filmId, Document document) {
+        for (String term : document.nameTerms()) {
+            remove(nameIndex, term, filmId);
+        }
+        for (String term : document.descriptionTerms()) {
+            remove(descriptionIndex, term, filmId);
+        }
+    }
+
+    private static void remove(Map<String, long[]> index, String term, long filmId) {
+        long[] ids = index.get(term);
+        if (ids == null) {
+            return;
+        }
+        int position = Arrays.binarySearch(ids, filmId);
+        if (position < 0) {
+            return;
+        }
+        if (ids.length == 1) {
+            index.remove(term);
+            return;
+        }
+        long[] result = new long[ids.length - 1];
+        System.arraycopy(ids, 0, result, 0, position);
+        System.arraycopy(ids, position + 1, result, position, ids.length - position - 1);
+        index.put(term, result);
+    }
+
+    private static long[] insert(long[] ids, long filmId) {
+        if (ids == null) {
+            return new long[]{filmId};
+        }
+        int position = Arrays.binarySearch(ids, filmId);
+        if (position >= 0) {
+            return ids;
+        }
+        int insertAt = -position - 1;
+        long[] result = new long[ids.length + 1];
+        System.arraycopy(ids, 0, result, 0, insertAt);
+        result[insertAt] = filmId;
+        System.arraycopy(ids, insertAt, result, insertAt + 1, ids.length - insertAt);
+        return result;
+    }
+
+    private static Document toDocument(Film film) {
+        return new Document(new LinkedHashSet<>(tokenize(film.getName())).toArray(new String[0]),
+                new LinkedHashSet<>(tokenize(film.getDescription())).toArray(new String[0]));
+    }
+
+    private record Document(String[] nameTerms, String[] descriptionTerms) {
+    }
+
+    /**
+     * Массивы идентификаторов фильмов для одного слова запроса: по одному на каждое подходящее
+     * слово индекса, если слово запроса ищется как префикс.
+     */
+    private record Postings(List<long[]> nameIds, List<long[]> descriptionIds) {
+
+        long size() {
+            long size = 0;
+            for (long[] ids : nameIds) {
+                size += ids.length;
+            }
+            for (long[] ids : descriptionIds) {
+                size += ids.length;
+            }
+            return size;
+        }
+
+        int weight(long filmId) {
+            for (long[] ids : nameIds) {
+                if (Arrays.binarySearch(ids, filmId) >= 0) {
+                    return NAME_WEIGHT;
+                }
+            }
+            for (long[] ids : descriptionIds) {
+                if (Arrays.binarySearch(ids, filmId) >= 0) {
+                    return DESCRIPTION_WEIGHT;
+                }
+            }
+            return 0;
+        }
+    }
+
+}
@@ -9,11 +9,17 @@ import ru.yandex.practicum.filmorate.exceptions.ResourceNotFoundException;
 import ru.yandex.practicum.filmorate.exceptions.ValidationException;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.model.LikeOperationResult;
+import ru.yandex.practicum.filmorate.model.LookupResult;
+import ru.yandex.practicum.filmorate.storage.AppliedLikes;
 import ru.yandex.practicum.filmorate.storage.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 
 import java.time.LocalDate;
-import java.util.List;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -21,41 +27,137 @@ import java.util.List;
 @Qualifier("filmDbStorage")
 public class FilmService {
 
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_LIKES_BATCH_SIZE = 1000;
+    private static final int MAX_LOOKUP_SIZE = 1000;
+
     private final FilmStorage filmStorage;
     private final UserStorage userStorage;
+    private final FilmLeaderboard filmLeaderboard;
+    private final LikeWriteBuffer likeWriteBuffer;
+    private final FilmRecommender filmRecommender;
+    private final FilmSearchIndex filmSearchIndex;
+    private final ParallelLookups parallelLookups;
+    private final EntityVersions entityVersions;
+    private final DictionaryService dictionaryService;
 
     public void addLike(long filmId, long userId) throws ResourceNotFoundException {
-        if (filmStorage.getFilmById(filmId) == null) {
-            log.error("Фильм с идентификатором {} не найден.", filmId);
-            throw new ResourceNotFoundException("Фильм не найден");
+        checkFilmAndUserExist(filmId, userId);
+
+        if (likeWriteBuffer.addLike(filmId, userId)) {
+            filmLeaderboard.changeLikes(filmId, 1);
         }
-        if (userStorage.getUserById(userId) == null) {
-            log.error("Пользователь с идентификатором {} не найден.", userId);
-            throw new ResourceNotFoundException("Пользователь не найден");
+    }
+
+    public void removeLike(long filmId, long userId) throws ResourceNotFoundException {
+        checkFilmAndUserExist(filmId, userId);
+
+        if (likeWriteBuffer.removeLike(filmId, userId)) {
+            filmLeaderboard.changeLikes(filmId, -1);
         }
+    }
 
-        filmStorage.addLike(filmId, userId);
+    public List<LikeOperationResult> applyLikes(List<LikeOperation> operations) throws ValidationException {
+        if (operations == null || operations.isEmpty() || operations.size() > MAX_LIKES_BATCH_SIZE) {
+            String err = "Пакет должен содержать от 1 до " + MAX_LIKES_BATCH_SIZE + " операций";
+            log.error("При обработке пакета лайков возникла ошибка: {}", err);
+            throw new ValidationException(err);
+        }
+        for (LikeOperation operation : operations) {
+            if (operation == null || operation.getOp() == null) {
+                String err = "Для каждой операции должен быть указан тип: LIKE или UNLIKE";
+                log.error("При обработке пакета лайков возникла ошибка: {}", err);
+                throw new ValidationException(err);
+            }
+        }
+
+        Set<Long> filmIds = operations.stream()
+                .map(LikeOperation::getFilmId)
+                .collect(Collectors.toSet());
+        Set<Long> userIds = operations.stream()
+                .map(LikeOperation::getUserId)
+                .collect(Collectors.toSet());
+        ParallelLookups.Both<Set<Long>, Set<Long>> existing = parallelLookups.fetch(
+                () -> filmStorage.getExistingFilmIds(filmIds), () -> userStorage.getExistingUserIds(userIds));
+        Set<Long> existingFilms = existing.first();
+        Set<Long> existingUsers = existing.second();
+
+        List<LikeOperationResult> results = new ArrayList<>(operations.size());
+        List<LikeOperation> validOperations = new ArrayList<>();
+        List<LikeOperationResult> validResults = new ArrayList<>();
+        for (LikeOperation operation : operations) {
+            LikeOperationResult result = new LikeOperationResult(operation.getFilmId(), operation.getUserId(),
+                    operation.getOp(), null);
+            if (!existingFilms.contains(operation.getFilmId())) {
+                result.setStatus(LikeOperationResult.Status.FILM_NOT_FOUND);
+            } else if (!existingUsers.contains(operation.getUserId())) {
+                result.setStatus(LikeOperationResult.Status.USER_NOT_FOUND);
+            } else {
+                validOperations.add(operation);
+                validResults.add(result);
+            }
+            results.add(result);
+        }
+
+        likeWriteBuffer.flush();
+        AppliedLikes appliedLikes = filmStorage.applyLikes(validOperations);
+        boolean[] applied = appliedLikes.applied();
+        for (int i = 0; i < validOperations.size(); i++) {
+            LikeOperation operation = validOperations.get(i);
+            validResults.get(i).setStatus(applied[i]
+                    ? LikeOperationResult.Status.APPLIED
+                    : LikeOperationResult.Status.UNCHANGED);
+            if (applied[i]) {
+                if (operation.getOp() == LikeOperation.Action.LIKE) {
+                    filmRecommender.addLike(operation.getFilmId(), operation.getUserId());
+                } else {
+                    filmRecommender.removeLike(operation.getFilmId(), operation.getUserId());
+                }
+            }
+        }
+        appliedLikes.likeDeltas().forEach(filmLeaderboard::changeLikes);
+        log.info("Обработан пакет из {} операций с лайками, изменений: {}.", operations.size(),
+                validResults.stream().filter(r -> r.getStatus() == LikeOperationResult.Status.APPLIED).count());
+        return results;
     }
 
-    public void removeLike(long filmId, long userId) throws ResourceNotFoundException {
-        if (filmStorage.getFilmById(filmId) == null) {
-            log.error("Фильм с идентификатором {} не найден.", filmId);
-            throw new ResourceNotFoundException("Фильм не найден");
+    public List<Film> getTopFilms(int count, Integer genreId, Integer year) {
+        return getFilmsInOrder(filmLeaderboard.getTopFilmIds(count, genreId, year));
+    }
+
+    public List<Film> getRecommendedFilms(long userId, int count) throws ResourceNotFoundException, ValidationException {
+        if (count < 1 || count > FilmRecommender.MAX_RECOMMENDATIONS) {
+            String err = "Количество рекомендаций должно быть от 1 до " + FilmRecommender.MAX_RECOMMENDATIONS;
+            log.error("При подборе фильмов возникла ошибка: {}. Указанное количество: {}", err, count);
+            throw new ValidationException(err);
         }
-        if (userStorage.getUserById(userId) == null) {
+        if (!userStorage.userExists(userId)) {
             log.error("Пользователь с идентификатором {} не найден.", userId);
             throw new ResourceNotFoundException("Пользователь не найден");
         }
-
-        filmStorage.deleteLike(filmId, userId);
+        return getFilmsInOrder(filmRecommender.recommend(userId, count));
     }
 
-    public List<Film> getTopFilms(int count) {
-        return filmStorage.getTopFilms(count);
+    public List<Film> searchFilms(String query, int count) throws ValidationException {
+        if (query == null || query.isBlank()) {
+            String err = "Поисковый запрос не может быть пустым";
+            log.error("При поиске фильмов возникла ошибка: {}", err);
+            throw new ValidationException(err);
+        }
+        if (count < 1 || count > FilmSearchIndex.MAX_RESULTS) {
+            String err = "Количество результатов должно быть от 1 до " + FilmSearchIndex.MAX_RESULTS;
+            log.error("При поиске фильмов возникла ошибка: {}. Указанное количество: {}", err, count);
+            throw new ValidationException(err);
+        }
+        return getFilmsInOrder(filmSearchIndex.search(query, count));
     }
 
     public void deleteAllFilms() {
         filmStorage.deleteAllFilms();
+        filmLeaderboard.clear();
+        filmRecommender.clear();
+        filmSearchIndex.clear();
+        entityVersions.allFilmsChanged();
     }
 
     @SneakyThrows
@@ -80,21 +182,25 @@ public class FilmService {
             log.error("При создании фильма возникла ошибка: {}. Указанная дата: {}", err, film.getReleaseDate());
             throw new ValidationException(err);
         }
-        if (film.getMpa().getId() < 1 || film.getMpa().getId() > Genre.values().size()) {
+        if (!dictionaryService.ratingExists(film.getMpa().getId())) {
             String err = "Не удалось найти рейтинг";
             log.error("При создании фильма возникла ошибка: {}.", err);
             throw new ResourceNotFoundException(err);
         }
 
         for (Genre genre : film.getGenres()) {
-            if (genre.getId() < 1 || genre.getId() > Genre.values().size()) {
+            if (!dictionaryService.genreExists(genre.getId())) {
                 String err = "Не удалось найти жанр с ID: " + genre.getId();
                 log.error("При создании фильма возникла ошибка: {}.", err);
                 throw new ResourceNotFoundException(err);
             }
         }
 
-        return filmStorage.addFilm(film);
+        Film created = filmStorage.addFilm(film);
+        filmLeaderboard.addFilm(created);
+        filmSearchIndex.indexFilm(created);
+        entityVersions.filmChanged(created.getId());
+        return created;
     }
 
     public Film updateFilm(Film film) throws ResourceNotFoundException, ValidationException {
@@ -119,25 +225,29 @@ public class FilmService {
             throw new ValidationException(err);
         }
 
-        if (filmStorage.getFilmById(film.getId()) == null) {
+        if (!filmStorage.filmExists(film.getId())) {
             log.error("Фильм с идентификатором {} не найден.", film.getId());
             throw new ResourceNotFoundException("Фильм не найден");
         }
-        if (film.getMpa().getId() < 1 || film.getMpa().getId() > Genre.values().size()) {
+        if (!dictionaryService.ratingExists(film.getMpa().getId())) {
             String err = "Не удалось найти рейтинг";
             log.error("При создании фильма возникла ошибка: {}.", err);
             throw new ResourceNotFoundException(err);
         }
 
         for (Genre genre : film.getGenres()) {
-            if (genre.getId() < 1 || genre.getId() > Genre.values().size()) {
+            if (!dictionaryService.genreExists(genre.getId())) {
                 String err = "Не удалось найти жанр с ID: " + genre.getId();
                 log.error("При создании фильма возникла ошибка: {}.", err);
                 throw new ResourceNotFoundException(err);
             }
         }
 
-        return filmStorage.updateFilm(film);
+        Film updated = filmStorage.updateFilm(film);
+        filmLeaderboard.updateFilm(updated);
+        filmSearchIndex.indexFilm(updated);
+        entityVersions.filmChanged(updated.getId());
+        return updated;
     }
 
     public Film getFilmById(long id) throws ResourceNotFoundException {
@@ -149,16 +259,68 @@ public class FilmService {
         return film;
     }
 
+    /**
+     * Ищет фильмы по списку идентификаторов одним обращением к хранилищу.
+     */
+    public LookupResult<Film> getFilmsByIds(List<Long> ids) throws ValidationException {
+        if (ids == null || ids.isEmpty() || ids.size() > MAX_LOOKUP_SIZE) {
+            String err = "Количество идентификаторов должно быть от 1 до " + MAX_LOOKUP_SIZE;
+            log.error("При запросе фильмов по идентификаторам возникла ошибка: {}", err);
+            throw new ValidationException(err);
+        }
+        return RequestOrder.arrange(ids, filmStorage.getFilmsByIds(ids), Film::getId);
+    }
+
     public List<Film> getAllFilms() {
         return filmStorage.getAllFilms();
     }
 
+    public List<Film> getFilmsPage(long afterId, int limit) throws ValidationException {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            String err = "Размер страницы должен быть от 1 до " + MAX_PAGE_SIZE;
+            log.error("При запросе страницы фильмов возникла ошибка: {}. Указанный размер: {}", err, limit);
+            throw new ValidationException(err);
+        }
+        return filmStorage.getFilmsPage(afterId, limit);
+    }
+
+    public void forEachFilm(Consumer<Film> action) {
+        filmStorage.forEachFilm(action);
+    }
+
     public void deleteFilm(long id) throws ResourceNotFoundException {
-        Film film = filmStorage.getFilmById(id);
-        if (film == null) {
+        if (!filmStorage.filmExists(id)) {
             log.error("Фильм с идентификатором {} не найден.", id);
             throw new ResourceNotFoundException("Фильм не найден");
         }
         filmStorage.deleteFilm(id);
+        filmLeaderboard.removeFilm(id);
+        filmRecommender.removeFilm(id);
+        filmSearchIndex.removeFilm(id);
+        entityVersions.filmDeleted(id);
+    }
+
+    public boolean filmExists(long id) {
+        return filmStorage.filmExists(id);
+    }
+
+    private List<Film> getFilmsInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return RequestOrder.arrange(ids, filmStorage.getFilmsByIds(ids), Film::getId).getItems();
+    }
+
+    private void checkFilmAndUserExist(long filmId, long userId) throws ResourceNotFoundException {
+        ParallelLookups.Both<Boolean, Boolean> exist = parallelLookups.fetch(
+                () -> filmStorage.filmExists(filmId), () -> userStorage.userExists(userId));
+        if (!exist.first()) {
+            log.error("Фильм с идентификатором {} не найден.", filmId);
+            throw new ResourceNotFoundException("Фильм не найден");
+        }
+        if (!exist.second()) {
+            log.error("Пользователь с идентификатором {} не найден.", userId);
+            throw new ResourceNotFoundException("Пользователь не найден");
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,173 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.SortedIds;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Подбор возможных друзей: друзья друзей, упорядоченные по количеству общих друзей.
+ * Обход ограничен двумя шагами, а на каждом шаге берётся не больше заданного числа связей,
+ * поэтому стоимость запроса не зависит от размера графа. Лучшие кандидаты отбираются кучей
+ * ограниченного размера и кэшируются. Изменение дружбы сбрасывает в кэше только тех
+ * пользователей, чей результат от неё зависел.
+ */
+@Component
+@Slf4j
+public class FriendRecommender {
+
+    public static final int MAX_RECOMMENDATIONS = 100;
+
+    private final UserStorage userStorage;
+    private final int maxFanOut;
+    private final int cacheSize;
+
+    private final Map<Long, Candidates> cache;
+    private final Map<Long, Set<Long>> dependents = new HashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private long invalidations;
+
+    public FriendRecommender(UserStorage userStorage,
+                             @Value("${filmorate.recommendations.friends.max-fan-out:200}") int maxFanOut,
+                             @Value("${filmorate.recommendations.friends.cache-size:10000}") int cacheSize) {
+        this.userStorage = userStorage;
+        this.maxFanOut = maxFanOut;
+        this.cacheSize = cacheSize;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * @return идентификаторы рекомендуемых пользователей и количество общих друзей с каждым,
+     * не больше {@link #MAX_RECOMMENDATIONS}
+     */
+    public Candidates getCandidates(long userId) {
+        long invalidationsBefore;
+        lock.lock();
+        try {
+            Candidates candidates = cache.get(userId);
+            if (candidates != null) {
+                return candidates;
+            }
+            invalidationsBefore = invalidations;
+        } finally {
+            lock.unlock();
+        }
+
+        Candidates candidates = compute(userId);
+        lock.lock();
+        try {
+            // Дружба могла измениться, пока кандидаты считались, тогда результат уже устарел
+            if (invalidations == invalidationsBefore && cacheSize > 0) {
+                put(userId, candidates);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return candidates;
+    }
+
+    /**
+     * Сбрасывает рекомендации, которые зависят от друзей указанного пользователя:
+     * его собственные и тех, у кого он был среди просмотренных друзей.
+     */
+    public void invalidate(long userId) {
+        lock.lock();
+        try {
+            invalidations++;
+            remove(userId);
+            Set<Long> affected = dependents.remove(userId);
+            if (affected != null) {
+                for (Long dependent : List.copyOf(affected)) {
+                    remove(dependent);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidateAll() {
+        lock.lock();
+        try {
+            invalidations++;
+            cache.clear();
+            dependents.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Candidates compute(long userId) {
+        long[] friendIds = userStorage.getFriendIds(userId);
+        long[] expanded = SortedIds.limit(friendIds, maxFanOut);
+        Map<Long, long[]> friendsOfFriends = userStorage.getFriendIds(Arrays.stream(expanded).boxed().toList());
+
+        Map<Long, Integer> mutualCounts = new HashMap<>();
+        for (long friendId : expanded) {
+            long[] friendsOfFriend = friendsOfFriends.getOrDefault(friendId, new long[0]);
+            for (long candidateId : SortedIds.limit(friendsOfFriend, maxFanOut)) {
+                if (candidateId != userId && Arrays.binarySearch(friendIds, candidateId) < 0) {
+                    mutualCounts.merge(candidateId, 1, Integer::sum);
+                }
+            }
+        }
+
+        // Куча с худшим кандидатом наверху: больше общих друзей и меньший идентификатор лучше
+        PriorityQueue<Map.Entry<Long, Integer>> top = new PriorityQueue<>(
+                Map.Entry.<Long, Integer>comparingByValue()
+                        .thenComparing(Map.Entry.<Long, Integer>comparingByKey().reversed()));
+        for (Map.Entry<Long, Integer> entry : mutualCounts.entrySet()) {
+            top.offer(entry);
+            if (top.size() > MAX_RECOMMENDATIONS) {
+                top.poll();
+            }
+        }
+
+        int size = top.size();
+        long[] ids = new long[size];
+        int[] mutualFriends = new int[size];
+        for (int i = size - 1; i >= 0; i--) {
+            Map.Entry<Long, Integer> entry = top.poll();
+            ids[i] = entry.getKey();
+            mutualFriends[i] = entry.getValue();
+        }
+        log.debug("Для пользователя {} найдено {} кандидатов в друзья среди {} друзей друзей.", userId, size,
+                mutualCounts.size());
+        return new Candidates(ids, mutualFriends, expanded);
+    }
+
+    private void put(long userId, Candidates candidates) {
+        remove(userId);
+        cache.put(userId, candidates);
+        for (long friendId : candidates.expandedFriendIds()) {
+            dependents.computeIfAbsent(friendId, k -> new HashSet<>()).add(userId);
+        }
+        if (cache.size() > cacheSize) {
+            remove(cache.keySet().iterator().next());
+        }
+    }
+
+    private void remove(long userId) {
+        Candidates removed = cache.remove(userId);
+        if (removed == null) {
+            return;
+        }
+        for (long friendId : removed.expandedFriendIds()) {
+            Set<Long> users = dependents.get(friendId);
+            if (users != null) {
+                users.remove(userId);
+                if (users.isEmpty()) {
+                    dependents.remove(friendId);
+                }
+            }
+        }
+    }
+
+    public record Candidates(long[] userIds, int[] mutualFriends, long[] expandedFriendIds) {
+    }
+
+}
@@ -0,0 +1,357 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.storage.AppliedLikes;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Запись лайков в хранилище. В режиме отложенной записи лайки и их отмены копятся в памяти,
+ * схлопываются по паре фильм-пользователь (лайк и последующая отмена взаимно гасятся) и сбрасываются
+ * в хранилище пакетами фоновым потоком — по достижении размера пакета или по таймеру.
+ * Если буфер заполнен, вызывающий поток сам сбрасывает его. Если запись не удалась, изменения
+ * возвращаются в буфер и пишутся при следующем сбросе. Без отложенной записи каждое изменение
+ * сразу пишется в хранилище.
+ * <p>
+ * Текущее состояние пары берётся из индекса лайков {@link FilmRecommender}, который буфер обновляет
+ * под своей блокировкой, поэтому постановка в буфер не обращается к хранилищу.
+ */
+@Component
+@Slf4j
+public class LikeWriteBuffer {
+
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final FilmLeaderboard filmLeaderboard;
+    private final FilmRecommender filmRecommender;
+
+    private final boolean enabled;
+    private final int capacity;
+    private final int batchSize;
+    private final Duration flushInterval;
+
+    private final Map<LikeKey, PendingLike> pending = new LinkedHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private ScheduledExecutorService executor;
+
+    private final AtomicLong flushCount = new AtomicLong();
+    private final AtomicLong flushedOperations = new AtomicLong();
+    private final AtomicLong lastFlushMillis = new AtomicLong();
+
+    public LikeWriteBuffer(FilmStorage filmStorage,
+                           UserStorage userStorage,
+                           FilmLeaderboard filmLeaderboard,
+                           FilmRecommender filmRecommender,
+                           @Value("${filmorate.likes.write-behind.enabled:false}") boolean enabled,
+                           @Value("${filmorate.likes.write-behind.capacity:10000}") int capacity,
+                           @Value("${filmorate.likes.write-behind.batch-size:500}") int batchSize,
+                           @Value("${filmorate.likes.write-behind.flush-interval:PT1S}") Duration flushInterval) {
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.filmLeaderboard = filmLeaderboard;
+        this.filmRecommender = filmRecommender;
+        this.enabled = enabled;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "like-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = flushInterval.toMillis();
+        executor.scheduleWithFixedDelay(this::flushQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        log.info("Включена отложенная запись лайков: буфер {}, пакет {}, интервал {}.", capacity, batchSize,
+                flushInterval);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor == null) {
+            return;
+        }
+        executor.shutdown();
+        try {
+            executor.awaitTermination(flushInterval.toMillis() + 1000, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    /**
+     * @return true, если лайк изменил набор лайков фильма с учётом ещё не записанных изменений
+     */
+    public boolean addLike(long filmId, long userId) {
+        if (!enabled) {
+            boolean added = filmStorage.addLike(filmId, userId);
+            if (added) {
+                filmRecommender.addLike(filmId, userId);
+            }
+            return added;
+        }
+        return buffer(new LikeKey(filmId, userId), true);
+    }
+
+    /**
+     * @return true, если отмена лайка изменила набор лайков фильма с учётом ещё не записанных изменений
+     */
+    public boolean removeLike(long filmId, long userId) {
+        if (!enabled) {
+            boolean deleted = filmStorage.deleteLike(filmId, userId);
+            if (deleted) {
+                filmRecommender.removeLike(filmId, userId);
+            }
+            return deleted;
+        }
+        return buffer(new LikeKey(filmId, userId), false);
+    }
+
+    /**
+     * Записывает в хранилище все накопленные изменения. Фильмы и пользователи, удалённые
+     * после постановки лайка в буфер, пропускаются. Если запись завершилась ошибкой, изменения
+     * возвращаются в буфер, а ошибка пробрасывается.
+     */
+    public void flush() {
+        if (!enabled) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            Map<LikeKey, PendingLike> batch;
+            lock.lock();
+            try {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                batch = new LinkedHashMap<>(pending);
+                pending.clear();
+            } finally {
+                lock.unlock();
+            }
+
+            long startedAt = System.nanoTime();
+            try {
+                write(batch);
+            } catch (RuntimeException | Error e) {
+                requeue(batch);
+                throw e;
+            }
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+            lastFlushMillis.set(millis);
+            flushCount.incrementAndGet();
+            flushedOperations.addAndGet(batch.size());
+            log.debug("Записано {} изменений лайков за {} мс.", batch.size(), millis);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getPendingCount() {
+        lock.lock();
+        try {
+            return pending.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getFlushCount() {
+        return flushCount.get();
+    }
+
+    public long getFlushedOperations() {
+        return flushedOperations.get();
+    }
+
+    public long getLastFlushMillis() {
+        return lastFlushMillis.get();
+    }
+
+    private boolean buffer(LikeKey key, boolean liked) {
+        boolean changed;
+        int size;
+        lock.lock();
+        try {
+            PendingLike like = pending.get(key);
+            if (like == null) {
+                // Индекс уже учитывает изменения, которые сейчас пишутся в хранилище
+                like = new PendingLike(filmRecommender.hasLike(key.filmId(), key.userId()));
+                pending.put(key, like);
+            }
+            changed = like.liked != liked;
+            like.liked = liked;
+            if (like.liked == like.initiallyLiked) {
+                pending.remove(key);
+            }
+            if (changed) {
+                setRecommenderLike(key, liked);
+            }
+            size = pending.size();
+        } finally {
+            lock.unlock();
+        }
+
+        if (size >= capacity) {
+            flush();
+        } else if (size >= batchSize && flushRequested.compareAndSet(false, true)) {
+            try {
+                executor.execute(() -> {
+                    flushRequested.set(false);
+                    flushQuietly();
+                });
+            } catch (RejectedExecutionException e) {
+                // Фоновый поток уже остановлен, пишем сами
+                flushRequested.set(false);
+                flush();
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Возвращает в буфер изменения, которые не удалось записать. Если по той же паре после начала сброса
+     * появилось новое изменение, оно продолжает вернувшееся: исходным состоянием пары снова
+     * становится то, что лежит в хранилище.
+     */
+    private void requeue(Map<LikeKey, PendingLike> batch) {
+        lock.lock();
+        try {
+            Map<LikeKey, PendingLike> newer = new LinkedHashMap<>(pending);
+            pending.clear();
+            batch.forEach((key, failed) -> {
+                PendingLike next = newer.remove(key);
+                PendingLike merged = new PendingLike(failed.initiallyLiked);
+                merged.liked = next != null ? next.liked : failed.liked;
+                if (merged.liked != merged.initiallyLiked) {
+                    pending.put(key, merged);
+                }
+            });
+            pending.putAll(newer);
+        } finally {
+            lock.unlock();
+        }
+        log.warn("Не удалось записать {} изменений лайков, они останутся в буфере до следующего сброса.",
+                batch.size());
+    }
+
+    private void write(Map<LikeKey, PendingLike> batch) {
+        Set<Long> existingFilms = filmStorage.getExistingFilmIds(batch.keySet().stream()
+                .map(LikeKey::filmId)
+                .collect(Collectors.toSet()));
+        Set<Long> existingUsers = userStorage.getExistingUserIds(batch.keySet().stream()
+                .map(LikeKey::userId)
+                .collect(Collectors.toSet()));
+
+        List<LikeKey> keys = new ArrayList<>(batch.size());
+        List<LikeKey> skipped = new ArrayList<>();
+        List<LikeOperation> operations = new ArrayList<>(batch.size());
+        batch.forEach((key, like) -> {
+            if (existingFilms.contains(key.filmId()) && existingUsers.contains(key.userId())) {
+                keys.add(key);
+                operations.add(new LikeOperation(key.filmId(), key.userId(),
+                        like.liked ? LikeOperation.Action.LIKE : LikeOperation.Action.UNLIKE));
+            } else {
+                skipped.add(key);
+            }
+        });
+
+        boolean[] applied = new boolean[0];
+        if (!operations.isEmpty()) {
+            // Рейтинг уже учёл изменения при постановке в буфер, поправляем его на то, что хранилище не записало
+            Map<Long, Long> corrections = new HashMap<>();
+            for (LikeOperation operation : operations) {
+                corrections.merge(operation.getFilmId(), operation.getOp() == LikeOperation.Action.LIKE ? -1L : 1L,
+                        Long::sum);
+            }
+            AppliedLikes appliedLikes = filmStorage.applyLikes(operations);
+            applied = appliedLikes.applied();
+            appliedLikes.likeDeltas().forEach((filmId, delta) -> corrections.merge(filmId, delta, Long::sum));
+            corrections.forEach((filmId, correction) -> {
+                if (correction != 0) {
+                    filmLeaderboard.changeLikes(filmId, correction);
+                }
+            });
+        }
+
+        // Индекс лайков тоже обновлён при постановке в буфер. Незаписанная операция значит, что пара
+        // в хранилище уже в нужном состоянии, а лайки удалённых фильмов и пользователей из индекса убираются.
+        // Пары с более новыми изменениями в буфере не трогаем: индекс уже отражает их
+        lock.lock();
+        try {
+            for (int i = 0; i < keys.size(); i++) {
+                LikeKey key = keys.get(i);
+                if (!applied[i] && !pending.containsKey(key)) {
+                    setRecommenderLike(key, batch.get(key).liked);
+                }
+            }
+            for (LikeKey key : skipped) {
+                if (!pending.containsKey(key)) {
+                    setRecommenderLike(key, false);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void setRecommenderLike(LikeKey key, boolean liked) {
+        if (liked) {
+            filmRecommender.addLike(key.filmId(), key.userId());
+        } else {
+            filmRecommender.removeLike(key.filmId(), key.userId());
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Не удалось записать накопленные лайки.", e);
+        }
+    }
+
+    private record LikeKey(long filmId, long userId) {
+    }
+
+    private static class PendingLike {
+
+        private final boolean initiallyLiked;
+        private boolean liked;
+
+        PendingLike(boolean initiallyLiked) {
+            this.initiallyLiked = initiallyLiked;
+            this.liked = initiallyLiked;
+        }
+    }
+
+}
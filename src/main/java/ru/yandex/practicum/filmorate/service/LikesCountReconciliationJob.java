@@ -0,0 +1,33 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.db.FilmDbStorage;
+
+/**
+ * Периодически сверяет счётчики лайков в таблице фильмов с таблицей лайков
+ * и обновляет рейтинг, если какие-то счётчики пришлось исправить.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class LikesCountReconciliationJob {
+
+    private final FilmDbStorage filmDbStorage;
+    private final FilmLeaderboard filmLeaderboard;
+    private final LikeWriteBuffer likeWriteBuffer;
+
+    @Scheduled(initialDelayString = "${filmorate.likes.reconciliation.initial-delay:PT0S}",
+            fixedDelayString = "${filmorate.likes.reconciliation.interval:PT1H}")
+    public void reconcile() {
+        likeWriteBuffer.flush();
+        int repaired = filmDbStorage.reconcileLikesCounts();
+        if (repaired > 0) {
+            log.warn("Исправлены счётчики лайков у {} фильмов, рейтинг будет обновлён.", repaired);
+            filmLeaderboard.reloadLikes();
+        }
+    }
+
+}
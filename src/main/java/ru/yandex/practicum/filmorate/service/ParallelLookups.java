@@ -0,0 +1,80 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Выполняет два независимых чтения из хранилищ одновременно: второе уходит в пул задач приложения,
+ * первое выполняется в вызывающем потоке, так что ожидание занимает время самого долгого из них.
+ * Если первое чтение завершилось ошибкой, второе отменяется; ошибка второго пробрасывается
+ * вызывающему как есть. Чтения выполняются вне транзакции вызывающего потока.
+ * Без параллельного режима чтения выполняются по очереди.
+ */
+@Component
+public class ParallelLookups {
+
+    private final AsyncTaskExecutor executor;
+    private final boolean enabled;
+
+    public ParallelLookups(@Qualifier("applicationTaskExecutor") AsyncTaskExecutor executor,
+                           @Value("${filmorate.lookups.parallel:false}") boolean enabled) {
+        this.executor = executor;
+        this.enabled = enabled;
+    }
+
+    public <T, U> Both<T, U> fetch(Supplier<T> first, Supplier<U> second) {
+        if (!enabled) {
+            return new Both<>(first.get(), second.get());
+        }
+        Future<U> secondResult;
+        try {
+            secondResult = executor.submit(second::get);
+        } catch (TaskRejectedException e) {
+            return new Both<>(first.get(), second.get());
+        }
+
+        T firstValue;
+        try {
+            firstValue = first.get();
+        } catch (RuntimeException | Error e) {
+            // Уже начатый запрос не прерываем: прерывание потока посреди JDBC-вызова может закрыть соединение
+            secondResult.cancel(false);
+            throw e;
+        }
+        return new Both<>(firstValue, await(secondResult));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    private static <U> U await(Future<U> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Ожидание обращения к хранилищу прервано", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    public record Both<T, U>(T first, U second) {
+    }
+
+}
@@ -0,0 +1,35 @@
+package ru.yandex.practicum.filmorate.service;
+
+import ru.yandex.practicum.filmorate.model.LookupResult;
+
+import java.util.*;
+import java.util.function.ToLongFunction;
+
+/**
+ * Раскладывает записи, полученные из хранилища в произвольном порядке, в порядке запрошенных
+ * идентификаторов. Повторяющиеся идентификаторы учитываются один раз.
+ */
+final class RequestOrder {
+
+    private RequestOrder() {
+    }
+
+    static <T> LookupResult<T> arrange(Collection<Long> ids, Collection<T> found, ToLongFunction<T> idOf) {
+        Map<Long, T> byId = new HashMap<>();
+        for (T item : found) {
+            byId.put(idOf.applyAsLong(item), item);
+        }
+        List<T> items = new ArrayList<>(found.size());
+        List<Long> missingIds = new ArrayList<>();
+        for (Long id : new LinkedHashSet<>(ids)) {
+            T item = byId.get(id);
+            if (item != null) {
+                items.add(item);
+            } else {
+                missingIds.add(id);
+            }
+        }
+        return new LookupResult<>(items, missingIds);
+    }
+
+}
@@ -6,12 +6,18 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exceptions.ResourceNotFoundException;
 import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.model.FriendRecommendation;
+import ru.yandex.practicum.filmorate.model.LookupResult;
+import ru.yandex.practicum.filmorate.model.MutualFriendsCount;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.SortedIds;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 
 import java.time.LocalDate;
-import java.util.HashSet;
-import java.util.List;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -19,52 +25,111 @@ import java.util.List;
 @Qualifier("userDbStorage")
 public class UserService {
 
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_MUTUAL_FRIENDS_BATCH_SIZE = 1000;
+    private static final int MAX_LOOKUP_SIZE = 1000;
+
     private final UserStorage userStorage;
+    private final FilmLeaderboard filmLeaderboard;
+    private final LikeWriteBuffer likeWriteBuffer;
+    private final FriendRecommender friendRecommender;
+    private final FilmRecommender filmRecommender;
+    private final ParallelLookups parallelLookups;
+    private final EntityVersions entityVersions;
 
     public void addFriend(long userId, long friendId) throws ResourceNotFoundException, ValidationException {
         if (userId == friendId) {
             log.error("Нельзя добавить в друзья самого себя");
             throw new ValidationException("Нельзя добавить в друзья самого себя");
         }
-        if (userStorage.getUserById(userId) == null) {
-            log.error("Пользователь с идентификатором {} не найден.", userId);
-            throw new ResourceNotFoundException("Пользователь не найден");
-        }
-        if (userStorage.getUserById(friendId) == null) {
-            log.error("Пользователь с идентификатором {} не найден.", friendId);
-            throw new ResourceNotFoundException("Пользователь не найден");
-        }
+        checkUsersExist(userId, friendId);
         userStorage.addFriend(userId, friendId);
+        friendRecommender.invalidate(userId);
+        friendRecommender.invalidate(friendId);
+        entityVersions.friendsChanged(userId, friendId);
     }
 
     public void removeFriend(long userId, long friendId) throws ResourceNotFoundException {
-        if (userStorage.getUserById(userId) == null) {
-            log.error("Пользователь с идентификатором {} не найден.", userId);
-            throw new ResourceNotFoundException("Пользователь не найден");
-        }
-        if (userStorage.getUserById(friendId) == null) {
-            log.error("Пользователь с идентификатором {} не найден.", friendId);
-            throw new ResourceNotFoundException("Пользователь не найден");
-        }
+        checkUsersExist(userId, friendId);
         userStorage.removeFriend(userId, friendId);
+        friendRecommender.invalidate(userId);
+        friendRecommender.invalidate(friendId);
+        entityVersions.friendsChanged(userId, friendId);
     }
 
     public List<User> getCommonFriends(long userId, long otherUserId) throws ResourceNotFoundException {
+        // Общих друзей ищем, не дожидаясь проверки пользователей: для несуществующих результат отбрасывается
+        ParallelLookups.Both<Set<Long>, List<User>> lookup = parallelLookups.fetch(
+                () -> userStorage.getExistingUserIds(List.of(userId, otherUserId)),
+                () -> userStorage.getCommonFriends(userId, otherUserId));
+        checkUsersExist(List.of(userId, otherUserId), lookup.first());
+        return lookup.second();
+    }
 
-        if (userStorage.getUserById(userId) == null) {
+    /**
+     * Считает общих друзей пользователя с каждым из указанных пользователей. Друзья всех
+     * пользователей загружаются одним запросом, а пересечение считается по отсортированным
+     * массивам идентификаторов. Несуществующие пользователи в ответ не попадают.
+     */
+    public List<MutualFriendsCount> getMutualFriendCounts(long userId, List<Long> otherUserIds)
+            throws ResourceNotFoundException, ValidationException {
+        if (otherUserIds == null || otherUserIds.isEmpty() || otherUserIds.size() > MAX_MUTUAL_FRIENDS_BATCH_SIZE) {
+            String err = "Нужно указать от 1 до " + MAX_MUTUAL_FRIENDS_BATCH_SIZE + " пользователей";
+            log.error("При подсчёте общих друзей возникла ошибка: {}", err);
+            throw new ValidationException(err);
+        }
+        if (!userStorage.userExists(userId)) {
             log.error("Пользователь с идентификатором {} не найден.", userId);
             throw new ResourceNotFoundException("Пользователь не найден");
         }
-        if (userStorage.getUserById(otherUserId) == null) {
-            log.error("Пользователь с идентификатором {} не найден.", otherUserId);
+
+        Set<Long> existing = userStorage.getExistingUserIds(new LinkedHashSet<>(otherUserIds));
+        long[] friendIds = userStorage.getFriendIds(userId);
+        Map<Long, long[]> otherFriendIds = userStorage.getFriendIds(existing);
+
+        List<MutualFriendsCount> counts = new ArrayList<>(existing.size());
+        for (Long otherUserId : new LinkedHashSet<>(otherUserIds)) {
+            if (existing.contains(otherUserId)) {
+                counts.add(new MutualFriendsCount(otherUserId,
+                        SortedIds.intersectionSize(friendIds, otherFriendIds.get(otherUserId))));
+            }
+        }
+        return counts;
+    }
+
+    public List<FriendRecommendation> getRecommendations(long userId, int count)
+            throws ResourceNotFoundException, ValidationException {
+        if (count < 1 || count > FriendRecommender.MAX_RECOMMENDATIONS) {
+            String err = "Количество рекомендаций должно быть от 1 до " + FriendRecommender.MAX_RECOMMENDATIONS;
+            log.error("При подборе друзей возникла ошибка: {}. Указанное количество: {}", err, count);
+            throw new ValidationException(err);
+        }
+        if (!userStorage.userExists(userId)) {
+            log.error("Пользователь с идентификатором {} не найден.", userId);
             throw new ResourceNotFoundException("Пользователь не найден");
         }
 
-        return userStorage.getCommonFriends(userId, otherUserId);
+        FriendRecommender.Candidates candidates = friendRecommender.getCandidates(userId);
+        int size = Math.min(count, candidates.userIds().length);
+        List<Long> ids = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            ids.add(candidates.userIds()[i]);
+        }
+        Map<Long, User> users = userStorage.getUsersByIds(ids).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+
+        List<FriendRecommendation> recommendations = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            User user = users.get(candidates.userIds()[i]);
+            if (user != null) {
+                recommendations.add(new FriendRecommendation(user, candidates.mutualFriends()[i]));
+            }
+        }
+        return recommendations;
     }
 
     public List<User> getFriends(long id) throws ResourceNotFoundException {
-        if (userStorage.getUserById(id) == null) {
+        if (!userStorage.userExists(id)) {
             log.error("Пользователь с идентификатором {} не найден.", id);
             throw new ResourceNotFoundException("Пользователь не найден");
         }
@@ -72,7 +137,12 @@ public class UserService {
     }
 
     public void deleteAllUsers() {
+        likeWriteBuffer.flush();
         userStorage.deleteAllUsers();
+        filmLeaderboard.reloadLikes();
+        friendRecommender.invalidateAll();
+        filmRecommender.clear();
+        entityVersions.allFriendListsChanged();
     }
 
     public User addUser(User user) throws ValidationException {
@@ -95,7 +165,9 @@ public class UserService {
         if (user.getFriends() == null) {
             user.setFriends(new HashSet<>());
         }
-        return userStorage.addUser(user);
+        User created = userStorage.addUser(user);
+        entityVersions.friendsChanged(created.getId());
+        return created;
     }
 
     public User updateUser(User user) throws ResourceNotFoundException, ValidationException {
@@ -114,12 +186,15 @@ public class UserService {
             user.setName(user.getLogin());
         }
 
-        if (userStorage.getUserById(user.getId()) == null) {
+        if (!userStorage.userExists(user.getId())) {
             log.error("Пользователь с идентификатором {} не найден.", user.getId());
             throw new ResourceNotFoundException("Пользователь не найден");
         }
 
-        return userStorage.updateUser(user);
+        User updated = userStorage.updateUser(user);
+        // Пользователь виден в списках друзей тех, кто добавил его в друзья
+        entityVersions.friendsChanged(userStorage.getFollowerIds(updated.getId()));
+        return updated;
     }
 
     public User getUserById(long id) throws ResourceNotFoundException {
@@ -131,12 +206,56 @@ public class UserService {
         return user;
     }
 
+    /**
+     * Ищет пользователей по списку идентификаторов одним обращением к хранилищу.
+     */
+    public LookupResult<User> getUsersByIds(List<Long> ids) throws ValidationException {
+        if (ids == null || ids.isEmpty() || ids.size() > MAX_LOOKUP_SIZE) {
+            String err = "Количество идентификаторов должно быть от 1 до " + MAX_LOOKUP_SIZE;
+            log.error("При запросе пользователей по идентификаторам возникла ошибка: {}", err);
+            throw new ValidationException(err);
+        }
+        return RequestOrder.arrange(ids, userStorage.getUsersByIds(ids), User::getId);
+    }
+
     public List<User> getAllUsers() {
         return userStorage.getAllUsers();
     }
 
+    public List<User> getUsersPage(long afterId, int limit) throws ValidationException {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            String err = "Размер страницы должен быть от 1 до " + MAX_PAGE_SIZE;
+            log.error("При запросе страницы пользователей возникла ошибка: {}. Указанный размер: {}", err, limit);
+            throw new ValidationException(err);
+        }
+        return userStorage.getUsersPage(afterId, limit);
+    }
+
+    public void forEachUser(Consumer<User> action) {
+        userStorage.forEachUser(action);
+    }
+
     public void deleteUser(long id) {
+        likeWriteBuffer.flush();
         userStorage.deleteUser(id);
+        filmLeaderboard.reloadLikes();
+        friendRecommender.invalidateAll();
+        filmRecommender.removeUser(id);
+        entityVersions.allFriendListsChanged();
+    }
+
+    private void checkUsersExist(long userId, long otherUserId) throws ResourceNotFoundException {
+        List<Long> ids = List.of(userId, otherUserId);
+        checkUsersExist(ids, userStorage.getExistingUserIds(ids));
+    }
+
+    private void checkUsersExist(List<Long> ids, Set<Long> existing) throws ResourceNotFoundException {
+        for (long id : ids) {
+            if (!existing.contains(id)) {
+                log.error("Пользователь с идентификатором {} не найден.", id);
+                throw new ResourceNotFoundException("Пользователь не найден");
+            }
+        }
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,12 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.Map;
+
+/**
+ * Итог пакета операций с лайками, посчитанный по фактически изменённым строкам хранилища.
+ *
+ * @param applied    для каждой операции признак того, что она изменила набор лайков
+ * @param likeDeltas изменение количества лайков по фильмам, фильмы без изменений не попадают
+ */
+public record AppliedLikes(boolean[] applied, Map<Long, Long> likeDeltas) {
+}
@@ -0,0 +1,294 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Кэширующая обёртка над хранилищем фильмов. Хранит в памяти ограниченное количество фильмов,
+ * вытесняя давно не запрашивавшиеся (LRU), и сбрасывает записи при изменении и удалении фильмов.
+ * Время жизни записи задаётся опционально, нулевое значение отключает его.
+ * Фильмы изменяемы, поэтому в кэше хранятся и из него отдаются копии: изменения, которые вызывающий
+ * код вносит в полученный фильм, не попадают в кэш.
+ */
+public class CachingFilmStorage implements FilmStorage {
+
+    private final FilmStorage delegate;
+    private final int maxSize;
+    private final long ttlNanos;
+
+    private final Map<Long, CacheEntry> entries;
+    private final ReentrantLock lock = new ReentrantLock();
+    private long invalidations;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public CachingFilmStorage(FilmStorage delegate, int maxSize, Duration ttl) {
+        this.delegate = delegate;
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl == null ? 0 : ttl.toNanos();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CacheEntry> eldest) {
+                if (size() > CachingFilmStorage.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    @Override
+    public Film addFilm(Film film) {
+        return delegate.addFilm(film);
+    }
+
+    @Override
+    public Film updateFilm(Film film) {
+        Film updated = delegate.updateFilm(film);
+        invalidate(film.getId());
+        return updated;
+    }
+
+    @Override
+    public Film getFilmById(long id) {
+        long invalidationsBefore;
+        lock.lock();
+        try {
+            CacheEntry entry = entries.get(id);
+            if (entry != null && !isExpired(entry)) {
+                hits.increment();
+                return copy(entry.film());
+            }
+            if (entry != null) {
+                entries.remove(id);
+                evictions.increment();
+            }
+            invalidationsBefore = invalidations;
+        } finally {
+            lock.unlock();
+        }
+
+        misses.increment();
+        Film film = delegate.getFilmById(id);
+        if (film != null) {
+            lock.lock();
+            try {
+                // Фильм могли изменить, пока он загружался, тогда загруженная версия уже устарела
+                if (invalidations == invalidationsBefore) {
+                    entries.put(id, new CacheEntry(copy(film), System.nanoTime()));
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return film;
+    }
+
+    /**
+     * Отдаёт закэшированные фильмы из кэша, а остальные загружает одним обращением к хранилищу.
+     */
+    @Override
+    public List<Film> getFilmsByIds(Collection<Long> ids) {
+        List<Film> films = new ArrayList<>(ids.size());
+        List<Long> unknown = new ArrayList<>();
+        long invalidationsBefore;
+        lock.lock();
+        try {
+            for (Long id : new LinkedHashSet<>(ids)) {
+                CacheEntry entry = entries.get(id);
+                if (entry != null && !isExpired(entry)) {
+                    hits.increment();
+                    films.add(copy(entry.film()));
+                    continue;
+                }
+                if (entry != null) {
+                    entries.remove(id);
+                    evictions.increment();
+                }
+                unknown.add(id);
+            }
+            invalidationsBefore = invalidations;
+        } finally {
+            lock.unlock();
+        }
+        if (unknown.isEmpty()) {
+            return films;
+        }
+
+        misses.add(unknown.size());
+        List<Film> loaded = delegate.getFilmsByIds(unknown);
+        lock.lock();
+        try {
+            if (invalidations == invalidationsBefore) {
+                long loadedAt = System.nanoTime();
+                loaded.forEach(film -> entries.put(film.getId(), new CacheEntry(copy(film), loadedAt)));
+            }
+        } finally {
+            lock.unlock();
+        }
+        films.addAll(loaded);
+        return films;
+    }
+
+    @Override
+    public boolean filmExists(long id) {
+        return isCached(id) || delegate.filmExists(id);
+    }
+
+    @Override
+    public Set<Long> getExistingFilmIds(Collection<Long> ids) {
+        Set<Long> existing = new HashSet<>();
+        List<Long> unknown = new ArrayList<>();
+        for (Long id : ids) {
+            if (isCached(id)) {
+                existing.add(id);
+            } else {
+                unknown.add(id);
+            }
+        }
+        if (!unknown.isEmpty()) {
+            existing.addAll(delegate.getExistingFilmIds(unknown));
+        }
+        return existing;
+    }
+
+    @Override
+    public List<Film> getAllFilms() {
+        return delegate.getAllFilms();
+    }
+
+    @Override
+    public List<Film> getFilmsPage(long afterId, int limit) {
+        return delegate.getFilmsPage(afterId, limit);
+    }
+
+    @Override
+    public void forEachFilm(Consumer<Film> action) {
+        delegate.forEachFilm(action);
+    }
+
+    @Override
+    public void deleteFilm(long id) {
+        delegate.deleteFilm(id);
+        invalidate(id);
+    }
+
+    @Override
+    public void deleteAllFilms() {
+        delegate.deleteAllFilms();
+        invalidateAll();
+    }
+
+    @Override
+    public boolean addLike(Long filmId, Long userId) {
+        return delegate.addLike(filmId, userId);
+    }
+
+    @Override
+    public boolean deleteLike(Long filmId, Long userId) {
+        return delegate.deleteLike(filmId, userId);
+    }
+
+    @Override
+    public boolean likeExists(long filmId, long userId) {
+        return delegate.likeExists(filmId, userId);
+    }
+
+    @Override
+    public AppliedLikes applyLikes(List<LikeOperation> operations) {
+        return delegate.applyLikes(operations);
+    }
+
+    @Override
+    public List<Film> getTopFilms(int count) {
+        return delegate.getTopFilms(count);
+    }
+
+    @Override
+    public Map<Long, Long> getLikesCounts() {
+        return delegate.getLikesCounts();
+    }
+
+    @Override
+    public void forEachLike(BiConsumer<Long, Long> action) {
+        delegate.forEachLike(action);
+    }
+
+    /**
+     * Сбрасывает весь кэш: для изменений, которые затрагивают сразу все фильмы, например справочников.
+     */
+    public void invalidateAll() {
+        lock.lock();
+        try {
+            entries.clear();
+            invalidations++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean isCached(long id) {
+        lock.lock();
+        try {
+            CacheEntry entry = entries.get(id);
+            return entry != null && !isExpired(entry);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean isExpired(CacheEntry entry) {
+        return ttlNanos > 0 && System.nanoTime() - entry.loadedAt() >= ttlNanos;
+    }
+
+    private void invalidate(long id) {
+        lock.lock();
+        try {
+            entries.remove(id);
+            invalidations++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Жанры и рейтинг неизменяемы, поэтому достаточно скопировать сам фильм и набор жанров
+    private static Film copy(Film film) {
+        return new Film(film.getId(), film.getName(), film.getDescription(), film.getReleaseDate(),
+                film.getDuration(), film.getGenres() == null ? null : new HashSet<>(film.getGenres()), film.getMpa());
+    }
+
+    private record CacheEntry(Film film, long loadedAt) {
+    }
+
+}
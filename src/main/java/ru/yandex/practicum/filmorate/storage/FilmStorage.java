@@ -1,8 +1,14 @@
 package ru.yandex.practicum.filmorate.storage;
 
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 public interface FilmStorage {
     Film addFilm(Film film);
@@ -11,15 +17,45 @@ public interface FilmStorage {
 
     Film getFilmById(long id);
 
+    /**
+     * @return найденные фильмы в произвольном порядке, отсутствующие идентификаторы пропускаются
+     */
+    List<Film> getFilmsByIds(Collection<Long> ids);
+
+    boolean filmExists(long id);
+
+    Set<Long> getExistingFilmIds(Collection<Long> ids);
+
     List<Film> getAllFilms();
 
+    List<Film> getFilmsPage(long afterId, int limit);
+
+    void forEachFilm(Consumer<Film> action);
+
     void deleteFilm(long id);
 
     void deleteAllFilms();
 
-    void addLike(Long filmId, Long userId);
+    boolean addLike(Long filmId, Long userId);
 
-    void deleteLike(Long filmId, Long userId);
+    boolean deleteLike(Long filmId, Long userId);
+
+    boolean likeExists(long filmId, long userId);
+
+    /**
+     * Применяет операции с лайками по порядку.
+     *
+     * @return признаки применения операций и изменения количества лайков фильмов
+     */
+    AppliedLikes applyLikes(List<LikeOperation> operations);
 
     List<Film> getTopFilms(int count);
+
+    Map<Long, Long> getLikesCounts();
+
+    /**
+     * Передаёт все лайки по одному в виде пар (идентификатор фильма, идентификатор пользователя),
+     * не загружая их в память целиком.
+     */
+    void forEachLike(BiConsumer<Long, Long> action);
 }
\ No newline at end of file
@@ -0,0 +1,34 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import ru.yandex.practicum.filmorate.storage.db.FilmDbStorage;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Кэш фильмов объявлен отдельным бином, чтобы компоненты, которым нужен именно кэш (сброс, метрики),
+ * получали его как {@code Optional<CachingFilmStorage>}: при {@code max-size <= 0} кэш не создаётся.
+ */
+@Configuration
+public class FilmStorageConfig {
+
+    @Bean
+    @ConditionalOnExpression("${filmorate.cache.films.max-size:10000} > 0")
+    public CachingFilmStorage cachingFilmStorage(FilmDbStorage filmDbStorage,
+                                                 @Value("${filmorate.cache.films.max-size:10000}") int maxSize,
+                                                 @Value("${filmorate.cache.films.ttl:0s}") Duration ttl) {
+        return new CachingFilmStorage(filmDbStorage, maxSize, ttl);
+    }
+
+    @Bean
+    @Primary
+    public FilmStorage filmStorage(FilmDbStorage filmDbStorage, Optional<CachingFilmStorage> cachingFilmStorage) {
+        return cachingFilmStorage.<FilmStorage>map(cache -> cache).orElse(filmDbStorage);
+    }
+
+}
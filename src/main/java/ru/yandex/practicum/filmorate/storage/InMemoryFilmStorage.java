@@ -2,15 +2,28 @@ package ru.yandex.practicum.filmorate.storage;
 
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
+/**
+ * Хранилище фильмов в памяти, безопасное для одновременного доступа из нескольких потоков.
+ * Наборы лайков изменяются внутри {@code compute} по идентификатору фильма, поэтому
+ * запросы к разным фильмам не блокируют друг друга, а пустой набор удаляется без потери
+ * параллельно поставленного лайка.
+ */
 @Component
 public class InMemoryFilmStorage implements FilmStorage {
 
-    private final Map<Long, Film> films = new HashMap<>();
-    private final Map<Long, Set<Long>> filmLikes = new HashMap<>();
+    private final ConcurrentMap<Long, Film> films = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, Set<Long>> filmLikes = new ConcurrentHashMap<>();
+    private final AtomicLong idSequence = new AtomicLong();
 
     @Override
     public Film addFilm(Film film) {
@@ -30,35 +43,101 @@ public class InMemoryFilmStorage implements FilmStorage {
         return films.get(id);
     }
 
+    @Override
+    public List<Film> getFilmsByIds(Collection<Long> ids) {
+        return ids.stream()
+                .distinct()
+                .map(films::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    @Override
+    public boolean filmExists(long id) {
+        return films.containsKey(id);
+    }
+
+    @Override
+    public Set<Long> getExistingFilmIds(Collection<Long> ids) {
+        return ids.stream()
+                .filter(films::containsKey)
+                .collect(Collectors.toSet());
+    }
+
     @Override
     public List<Film> getAllFilms() {
         return new ArrayList<>(films.values());
     }
 
+    @Override
+    public List<Film> getFilmsPage(long afterId, int limit) {
+        return films.values().stream()
+                .filter(film -> film.getId() > afterId)
+                .sorted(Comparator.comparingLong(Film::getId))
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    public void forEachFilm(Consumer<Film> action) {
+        films.values().forEach(action);
+    }
+
     @Override
     public void deleteFilm(long id) {
         films.remove(id);
+        filmLikes.remove(id);
     }
 
     @Override
     public void deleteAllFilms() {
         films.clear();
+        filmLikes.clear();
+    }
+
+    @Override
+    public boolean addLike(Long filmId, Long userId) {
+        boolean[] added = new boolean[1];
+        filmLikes.compute(filmId, (id, likes) -> {
+            Set<Long> result = likes == null ? ConcurrentHashMap.newKeySet() : likes;
+            added[0] = result.add(userId);
+            return result;
+        });
+        return added[0];
     }
 
     @Override
-    public void addLike(Long filmId, Long userId) {
-        filmLikes.computeIfAbsent(filmId, k -> new HashSet<>()).add(userId);
+    public boolean deleteLike(Long filmId, Long userId) {
+        boolean[] removed = new boolean[1];
+        filmLikes.computeIfPresent(filmId, (id, likes) -> {
+            removed[0] = likes.remove(userId);
+            return likes.isEmpty() ? null : likes;
+        });
+        return removed[0];
     }
 
     @Override
-    public void deleteLike(Long filmId, Long userId) {
+    public boolean likeExists(long filmId, long userId) {
         Set<Long> likes = filmLikes.get(filmId);
-        if (likes != null) {
-            likes.remove(userId);
-            if (likes.isEmpty()) {
-                filmLikes.remove(filmId);
+        return likes != null && likes.contains(userId);
+    }
+
+    @Override
+    public AppliedLikes applyLikes(List<LikeOperation> operations) {
+        boolean[] applied = new boolean[operations.size()];
+        Map<Long, Long> likeDeltas = new HashMap<>();
+        for (int i = 0; i < operations.size(); i++) {
+            LikeOperation operation = operations.get(i);
+            boolean like = operation.getOp() == LikeOperation.Action.LIKE;
+            applied[i] = like
+                    ? addLike(operation.getFilmId(), operation.getUserId())
+                    : deleteLike(operation.getFilmId(), operation.getUserId());
+            if (applied[i]) {
+                likeDeltas.merge(operation.getFilmId(), like ? 1L : -1L, Long::sum);
             }
         }
+        likeDeltas.values().removeIf(delta -> delta == 0);
+        return new AppliedLikes(applied, likeDeltas);
     }
 
     @Override
@@ -68,10 +147,26 @@ public class InMemoryFilmStorage implements FilmStorage {
                 .limit(count)
                 .map(Map.Entry::getKey)
                 .map(this::getFilmById)
+                .filter(Objects::nonNull)
                 .collect(Collectors.toList());
     }
 
+    @Override
+    public Map<Long, Long> getLikesCounts() {
+        Map<Long, Long> likesCounts = new HashMap<>();
+        for (Long filmId : films.keySet()) {
+            Set<Long> likes = filmLikes.get(filmId);
+            likesCounts.put(filmId, likes == null ? 0L : likes.size());
+        }
+        return likesCounts;
+    }
+
+    @Override
+    public void forEachLike(BiConsumer<Long, Long> action) {
+        filmLikes.forEach((filmId, likes) -> likes.forEach(userId -> action.accept(filmId, userId)));
+    }
+
     private long getNextId() {
-        return films.keySet().stream().mapToLong(id -> id).max().orElse(0) + 1;
+        return idSequence.incrementAndGet();
     }
 }
\ No newline at end of file
@@ -4,10 +4,22 @@ import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
+/**
+ * Хранилище пользователей в памяти, безопасное для одновременного доступа из нескольких потоков.
+ * Дружба хранится отдельно от объектов пользователей, как и в базе данных, в компактном
+ * {@link SortedAdjacency}.
+ */
 @Component
 public class InMemoryUserStorage implements UserStorage {
-    private final Map<Long, User> users = new HashMap<>();
+    private final ConcurrentMap<Long, User> users = new ConcurrentHashMap<>();
+    private final SortedAdjacency friendGraph = new SortedAdjacency();
+    private final AtomicLong idSequence = new AtomicLong();
 
     @Override
     public User addUser(User user) {
@@ -27,64 +39,114 @@ public class InMemoryUserStorage implements UserStorage {
         return users.get(id);
     }
 
+    @Override
+    public List<User> getUsersByIds(Collection<Long> ids) {
+        return ids.stream()
+                .distinct()
+                .map(users::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    @Override
+    public boolean userExists(long id) {
+        return users.containsKey(id);
+    }
+
+    @Override
+    public Set<Long> getExistingUserIds(Collection<Long> ids) {
+        return ids.stream()
+                .filter(users::containsKey)
+                .collect(Collectors.toSet());
+    }
+
     @Override
     public List<User> getAllUsers() {
         return new ArrayList<>(users.values());
     }
 
+    @Override
+    public List<User> getUsersPage(long afterId, int limit) {
+        return users.values().stream()
+                .filter(user -> user.getId() > afterId)
+                .sorted(Comparator.comparingLong(User::getId))
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    public void forEachUser(Consumer<User> action) {
+        users.values().forEach(action);
+    }
+
     @Override
     public void deleteUser(long id) {
         users.remove(id);
+        for (long friendId : friendGraph.removeAll(id)) {
+            friendGraph.remove(friendId, id);
+        }
     }
 
     @Override
     public void deleteAllUsers() {
         users.clear();
+        friendGraph.clear();
     }
 
     @Override
     public void addFriend(long userId, long friendId) {
-        User user = getUserById(userId);
-        User friend = getUserById(friendId);
-        user.getFriends().add(friendId);
-        friend.getFriends().add(userId);
-        updateUser(user);
-        updateUser(friend);
+        friendGraph.add(userId, friendId);
+        friendGraph.add(friendId, userId);
     }
 
     @Override
     public void removeFriend(long userId, long friendId) {
-        User user = getUserById(userId);
-        User friend = getUserById(friendId);
-        user.getFriends().remove(friendId);
-        friend.getFriends().remove(userId);
-        updateUser(user);
-        updateUser(friend);
+        friendGraph.remove(userId, friendId);
+        friendGraph.remove(friendId, userId);
     }
 
     @Override
     public List<User> getCommonFriends(long userId, long otherUserId) {
-        User user = getUserById(userId);
-        User otherUser = getUserById(otherUserId);
-
-        Set<Long> commonFriendIds = user.getFriends();
-        commonFriendIds.retainAll(otherUser.getFriends());
-        return commonFriendIds.stream()
-                .map(this::getUserById)
-                .toList();
+        return toUsers(SortedIds.intersect(friendGraph.get(userId), friendGraph.get(otherUserId)));
     }
 
     @Override
     public List<User> getFriends(long id) {
-        User user = getUserById(id);
-        Set<Long> friendIds = user.getFriends();
-        return friendIds.stream()
-                .map(this::getUserById)
-                .filter(Objects::nonNull)
-                .toList();
+        return toUsers(friendGraph.get(id));
+    }
+
+    @Override
+    public long[] getFriendIds(long id) {
+        return friendGraph.get(id);
+    }
+
+    @Override
+    public Map<Long, long[]> getFriendIds(Collection<Long> ids) {
+        Map<Long, long[]> friendIds = new HashMap<>();
+        for (Long id : ids) {
+            friendIds.put(id, friendGraph.get(id));
+        }
+        return friendIds;
+    }
+
+    @Override
+    public long[] getFollowerIds(long id) {
+        // Дружба здесь взаимная, поэтому подписчики совпадают с друзьями
+        return friendGraph.get(id);
+    }
+
+    private List<User> toUsers(long[] ids) {
+        List<User> result = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            User user = users.get(id);
+            if (user != null) {
+                result.add(user);
+            }
+        }
+        return result;
     }
 
     private long getNextId() {
-        return users.keySet().stream().mapToLong(id -> id).max().orElse(0) + 1;
+        return idSequence.incrementAndGet();
     }
 }
\ No newline at end of file
@@ -0,0 +1,117 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Компактное хранилище связей между идентификаторами: друзей пользователя, лайков пользователя
+ * или фильма. Для каждого идентификатора хранится отсортированный массив {@code long[]} связанных
+ * идентификаторов, поэтому связь занимает 8 байт вместо упакованного {@link Long} и узла
+ * хеш-таблицы. Массивы неизменяемы: при изменении создаётся новая копия, поэтому читатели
+ * обходят их без блокировок.
+ */
+public final class SortedAdjacency {
+
+    private static final long[] EMPTY = new long[0];
+
+    private final ConcurrentMap<Long, long[]> adjacency = new ConcurrentHashMap<>();
+
+    /**
+     * @return true, если связь добавлена, и false, если она уже была
+     */
+    public boolean add(long id, long linkedId) {
+        boolean[] added = new boolean[1];
+        adjacency.compute(id, (key, linkedIds) -> {
+            long[] current = linkedIds == null ? EMPTY : linkedIds;
+            int index = Arrays.binarySearch(current, linkedId);
+            if (index >= 0) {
+                return linkedIds;
+            }
+            int insertAt = -index - 1;
+            long[] result = new long[current.length + 1];
+            System.arraycopy(current, 0, result, 0, insertAt);
+            result[insertAt] = linkedId;
+            System.arraycopy(current, insertAt, result, insertAt + 1, current.length - insertAt);
+            added[0] = true;
+            return result;
+        });
+        return added[0];
+    }
+
+    /**
+     * @return true, если связь была и удалена
+     */
+    public boolean remove(long id, long linkedId) {
+        boolean[] removed = new boolean[1];
+        adjacency.computeIfPresent(id, (key, linkedIds) -> {
+            int index = Arrays.binarySearch(linkedIds, linkedId);
+            if (index < 0) {
+                return linkedIds;
+            }
+            removed[0] = true;
+            if (linkedIds.length == 1) {
+                return null;
+            }
+            long[] result = new long[linkedIds.length - 1];
+            System.arraycopy(linkedIds, 0, result, 0, index);
+            System.arraycopy(linkedIds, index + 1, result, index, linkedIds.length - index - 1);
+            return result;
+        });
+        return removed[0];
+    }
+
+    public boolean contains(long id, long linkedId) {
+        return Arrays.binarySearch(get(id), linkedId) >= 0;
+    }
+
+    /**
+     * Возвращает отсортированные связанные идентификаторы. Массив общий для всех читателей
+     * и не должен изменяться.
+     */
+    public long[] get(long id) {
+        long[] linkedIds = adjacency.get(id);
+        return linkedIds == null ? EMPTY : linkedIds;
+    }
+
+    /**
+     * Заменяет все связи идентификатора. Используется при массовой загрузке, чтобы не копировать
+     * массив на каждую связь.
+     *
+     * @param linkedIds отсортированные идентификаторы без повторов, массив переходит во владение хранилища
+     */
+    public void set(long id, long[] linkedIds) {
+        if (linkedIds.length == 0) {
+            adjacency.remove(id);
+        } else {
+            adjacency.put(id, linkedIds);
+        }
+    }
+
+    public int degree(long id) {
+        return get(id).length;
+    }
+
+    /**
+     * Удаляет все связи идентификатора, исходящие от него.
+     *
+     * @return бывшие связанные идентификаторы
+     */
+    public long[] removeAll(long id) {
+        long[] linkedIds = adjacency.remove(id);
+        return linkedIds == null ? EMPTY : linkedIds;
+    }
+
+    public void clear() {
+        adjacency.clear();
+    }
+
+    public long edgeCount() {
+        long count = 0;
+        for (long[] linkedIds : adjacency.values()) {
+            count += linkedIds.length;
+        }
+        return count;
+    }
+
+}
@@ -0,0 +1,149 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.Arrays;
+
+/**
+ * Операции над отсортированными по возрастанию массивами идентификаторов без повторов.
+ * Пересечение массивов близкого размера выполняется слиянием. Если один массив намного
+ * больше другого (например, друзья популярного аккаунта), каждый элемент меньшего ищется
+ * в большем экспоненциальным (galloping) поиском, и стоимость становится O(m log(n / m)).
+ */
+public final class SortedIds {
+
+    private static final int GALLOP_RATIO = 32;
+
+    private SortedIds() {
+    }
+
+    public static long[] intersect(long[] first, long[] second) {
+        long[] smaller = first.length <= second.length ? first : second;
+        long[] larger = smaller == first ? second : first;
+        long[] result = new long[smaller.length];
+        int size = 0;
+
+        if ((long) smaller.length * GALLOP_RATIO < larger.length) {
+            int from = 0;
+            for (long id : smaller) {
+                from = gallop(larger, from, id);
+                if (from >= larger.length) {
+                    break;
+                }
+                if (larger[from] == id) {
+                    result[size++] = id;
+                    from++;
+                }
+            }
+        } else {
+            int i = 0;
+            int j = 0;
+            while (i < smaller.length && j < larger.length) {
+                if (smaller[i] < larger[j]) {
+                    i++;
+                } else if (smaller[i] > larger[j]) {
+                    j++;
+                } else {
+                    result[size++] = smaller[i];
+                    i++;
+                    j++;
+                }
+            }
+        }
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+
+    public static int intersectionSize(long[] first, long[] second) {
+        long[] smaller = first.length <= second.length ? first : second;
+        long[] larger = smaller == first ? second : first;
+        int size = 0;
+
+        if ((long) smaller.length * GALLOP_RATIO < larger.length) {
+            int from = 0;
+            for (long id : smaller) {
+                from = gallop(larger, from, id);
+                if (from >= larger.length) {
+                    break;
+                }
+                if (larger[from] == id) {
+                    size++;
+                    from++;
+                }
+            }
+        } else {
+            int i = 0;
+            int j = 0;
+            while (i < smaller.length && j < larger.length) {
+                if (smaller[i] < larger[j]) {
+                    i++;
+                } else if (smaller[i] > larger[j]) {
+                    j++;
+                } else {
+                    size++;
+                    i++;
+                    j++;
+                }
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Возвращает не больше {@code max} идентификаторов, равномерно выбранных по всему массиву,
+     * чтобы при обходе связей популярных пользователей и фильмов учитывались не только первые.
+     * Порядок сохраняется; если массив не длиннее {@code max}, возвращается он сам.
+     */
+    public static long[] limit(long[] ids, int max) {
+        if (ids.length <= max) {
+            return ids;
+        }
+        long[] limited = new long[max];
+        for (int i = 0; i < max; i++) {
+            limited[i] = ids[(int) ((long) i * ids.length / max)];
+        }
+        return limited;
+    }
+
+    /**
+     * Возвращает позицию первого элемента не меньше {@code id}, начиная с {@code from}:
+     * сначала шагами 1, 2, 4, ... находит диапазон, затем ищет в нём двоичным поиском.
+     */
+    private static int gallop(long[] ids, int from, long id) {
+        int bound = 1;
+        while (from + bound < ids.length && ids[from + bound - 1] < id) {
+            bound <<= 1;
+        }
+        int low = from + (bound >> 1);
+        int high = Math.min(from + bound, ids.length);
+        int index = Arrays.binarySearch(ids, low, high, id);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    /**
+     * Накапливает идентификаторы в порядке поступления для массовой загрузки и выдаёт их
+     * отсортированными и без повторов.
+     */
+    public static final class Builder {
+
+        private long[] ids = new long[4];
+        private int size;
+
+        public void add(long id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+
+        public long[] build() {
+            long[] result = Arrays.copyOf(ids, size);
+            Arrays.sort(result);
+            int unique = 0;
+            for (int i = 0; i < result.length; i++) {
+                if (i == 0 || result[i] != result[i - 1]) {
+                    result[unique++] = result[i];
+                }
+            }
+            return unique == result.length ? result : Arrays.copyOf(result, unique);
+        }
+    }
+
+}
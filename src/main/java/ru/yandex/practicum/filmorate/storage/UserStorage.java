@@ -2,7 +2,11 @@ package ru.yandex.practicum.filmorate.storage;
 
 import ru.yandex.practicum.filmorate.model.User;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public interface UserStorage {
     User addUser(User user);
@@ -11,8 +15,21 @@ public interface UserStorage {
 
     User getUserById(long id);
 
+    /**
+     * @return найденные пользователи в произвольном порядке, отсутствующие идентификаторы пропускаются
+     */
+    List<User> getUsersByIds(Collection<Long> ids);
+
+    boolean userExists(long id);
+
+    Set<Long> getExistingUserIds(Collection<Long> ids);
+
     List<User> getAllUsers();
 
+    List<User> getUsersPage(long afterId, int limit);
+
+    void forEachUser(Consumer<User> action);
+
     void deleteUser(long id);
 
     void deleteAllUsers();
@@ -25,4 +42,20 @@ public interface UserStorage {
 
     List<User> getFriends(long id);
 
+    /**
+     * @return идентификаторы друзей пользователя, отсортированные по возрастанию
+     */
+    long[] getFriendIds(long id);
+
+    /**
+     * @return отсортированные идентификаторы друзей для каждого из указанных пользователей
+     */
+    Map<Long, long[]> getFriendIds(Collection<Long> ids);
+
+    /**
+     * @return идентификаторы пользователей, у которых указанный пользователь в друзьях,
+     * отсортированные по возрастанию
+     */
+    long[] getFollowerIds(long id);
+
 }
\ No newline at end of file
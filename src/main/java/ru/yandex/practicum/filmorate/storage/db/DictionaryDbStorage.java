@@ -0,0 +1,98 @@
+package ru.yandex.practicum.filmorate.storage.db;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Rating;
+
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Справочники жанров и рейтингов, загруженные из базы. Экземпляры жанров и рейтингов
+ * общие для всех фильмов, которые читаются из базы, поэтому изменять их нельзя.
+ * Поиск по идентификатору — обращение к массиву без создания объектов.
+ * При повторной загрузке справочники заменяются целиком, а версия растёт, только если
+ * содержимое таблиц изменилось.
+ */
+@Repository
+@Slf4j
+public class DictionaryDbStorage {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private volatile Dictionary dictionary = new Dictionary(new Genre[0], new Rating[0], List.of(), List.of(), 0);
+    private final ReentrantLock loadLock = new ReentrantLock();
+
+    @Autowired
+    public DictionaryDbStorage(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void load() {
+        loadLock.lock();
+        try {
+            List<Genre> genres = jdbcTemplate.query("SELECT id, name FROM genres ORDER BY id",
+                    (rs, rowNum) -> new Genre(rs.getInt("id"), rs.getString("name")));
+            List<Rating> ratings = jdbcTemplate.query("SELECT id, name FROM ratings ORDER BY id",
+                    (rs, rowNum) -> new Rating(rs.getInt("id"), rs.getString("name")));
+
+            Dictionary current = dictionary;
+            if (genres.equals(current.genres()) && ratings.equals(current.ratings())) {
+                log.debug("Справочники не изменились.");
+                return;
+            }
+
+            Genre[] genresById = new Genre[genres.isEmpty() ? 0 : genres.getLast().getId() + 1];
+            genres.forEach(genre -> genresById[genre.getId()] = genre);
+            Rating[] ratingsById = new Rating[ratings.isEmpty() ? 0 : ratings.getLast().getId() + 1];
+            ratings.forEach(rating -> ratingsById[rating.getId()] = rating);
+
+            dictionary = new Dictionary(genresById, ratingsById, List.copyOf(genres), List.copyOf(ratings),
+                    current.version() + 1);
+            log.info("Загружены справочники: жанров {}, рейтингов {}.", genres.size(), ratings.size());
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    /**
+     * @return жанр или null, если жанра с таким идентификатором нет
+     */
+    public Genre getGenre(int id) {
+        Genre[] genres = dictionary.genresById();
+        return id >= 0 && id < genres.length ? genres[id] : null;
+    }
+
+    /**
+     * @return рейтинг или null, если рейтинга с таким идентификатором нет
+     */
+    public Rating getRating(int id) {
+        Rating[] ratings = dictionary.ratingsById();
+        return id >= 0 && id < ratings.length ? ratings[id] : null;
+    }
+
+    public List<Genre> getGenres() {
+        return dictionary.genres();
+    }
+
+    public List<Rating> getRatings() {
+        return dictionary.ratings();
+    }
+
+    /**
+     * @return номер загрузки, после которой справочники последний раз менялись
+     */
+    public long getVersion() {
+        return dictionary.version();
+    }
+
+    private record Dictionary(Genre[] genresById, Rating[] ratingsById, List<Genre> genres, List<Rating> ratings,
+                              long version) {
+    }
+
+}
@@ -1,33 +1,44 @@
 package ru.yandex.practicum.filmorate.storage.db;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.annotation.Primary;
-import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.storage.AppliedLikes;
 import ru.yandex.practicum.filmorate.storage.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.db.mappers.FilmRowMapper;
 
+import java.sql.BatchUpdateException;
 import java.sql.PreparedStatement;
-import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 @Repository
-@Primary
 public class FilmDbStorage implements FilmStorage {
 
+    private static final int STREAM_FETCH_SIZE = 500;
+    private static final int MAX_IN_CLAUSE_SIZE = 1000;
+
     private final JdbcTemplate jdbcTemplate;
+    private final FilmRowMapper filmRowMapper;
 
     @Autowired
-    public FilmDbStorage(JdbcTemplate jdbcTemplate) {
+    public FilmDbStorage(JdbcTemplate jdbcTemplate, DictionaryDbStorage dictionaryDbStorage) {
         this.jdbcTemplate = jdbcTemplate;
+        this.filmRowMapper = new FilmRowMapper(dictionaryDbStorage);
     }
 
     @Override
+    @Transactional
     public Film addFilm(Film film) {
         String sql = "INSERT INTO films (name, description, release_date, duration, rating_id) VALUES (?, ?, ?, ?, ?)";
         KeyHolder keyHolder = new GeneratedKeyHolder();
@@ -43,15 +54,24 @@ public class FilmDbStorage implements FilmStorage {
         }, keyHolder);
 
         film.setId(Objects.requireNonNull(keyHolder.getKey()).longValue());
-        updateGenres(film);
+        insertGenres(film.getId(), genreIds(film));
 
         return film;
     }
 
+    /**
+     * Записывает только то, что изменилось: строка фильма обновляется, если отличается хоть одно поле,
+     * а из связей с жанрами удаляются лишние и добавляются недостающие.
+     */
     @Override
+    @Transactional
     public Film updateFilm(Film film) {
-        String sql = "UPDATE films SET name = ?, description = ?, release_date = ?, duration = ?, rating_id = ? WHERE id = ?";
-        jdbcTemplate.update(sql, film.getName(), film.getDescription(), film.getReleaseDate(), film.getDuration(), film.getMpa().getId(), film.getId());
+        String sql = "UPDATE films SET name = ?, description = ?, release_date = ?, duration = ?, rating_id = ? " +
+                "WHERE id = ? AND (name IS DISTINCT FROM ? OR description IS DISTINCT FROM ? " +
+                "OR release_date IS DISTINCT FROM ? OR duration IS DISTINCT FROM ? OR rating_id IS DISTINCT FROM ?)";
+        jdbcTemplate.update(sql, film.getName(), film.getDescription(), film.getReleaseDate(), film.getDuration(),
+                film.getMpa().getId(), film.getId(), film.getName(), film.getDescription(), film.getReleaseDate(),
+                film.getDuration(), film.getMpa().getId());
         updateGenres(film);
         return film;
     }
@@ -59,34 +79,88 @@ public class FilmDbStorage implements FilmStorage {
 
     @Override
     public Film getFilmById(long id) {
-        String sql = "select f.*, r.name as rating_name, listagg(distinct g.id) as genres, " +
-                "count(distinct l.user_id) as likes_count from films f " +
+        String sql = "select f.*, listagg(fbg.genre_id) as genres from films f " +
                 "left join films_by_genres fbg on fbg.film_id = f.id " +
-                "left join genres g on g.id = fbg.genre_id " +
-                "join ratings r on r.id = f.rating_id " +
-                "left join likes l on l.film_id = f.id " +
                 "where f.id = ? " +
-                "group by f.id, f.name, f.description, f.release_date, f.duration, f.rating_id, r.name";
-        List<Film> films = jdbcTemplate.query(sql, new FilmRowMapper(), id);
+                "group by f.id, f.name, f.description, f.release_date, f.duration, f.rating_id, f.likes_count";
+        List<Film> films = jdbcTemplate.query(sql, filmRowMapper, id);
         if (films.isEmpty()) {
             return null;
         }
         return films.getFirst();
     }
 
+    @Override
+    public List<Film> getFilmsByIds(Collection<Long> ids) {
+        Object[] distinct = ids.stream().distinct().toArray();
+        List<Film> films = new ArrayList<>(distinct.length);
+        for (int from = 0; from < distinct.length; from += MAX_IN_CLAUSE_SIZE) {
+            Object[] chunk = Arrays.copyOfRange(distinct, from, Math.min(from + MAX_IN_CLAUSE_SIZE, distinct.length));
+            String sql = "select f.*, listagg(fbg.genre_id) as genres from films f " +
+                    "left join films_by_genres fbg on fbg.film_id = f.id " +
+                    "where f.id in (" + InClause.placeholders(chunk.length) + ") " +
+                    "group by f.id, f.name, f.description, f.release_date, f.duration, f.rating_id, f.likes_count";
+            films.addAll(jdbcTemplate.query(sql, filmRowMapper, chunk));
+        }
+        return films;
+    }
+
+    @Override
+    public boolean filmExists(long id) {
+        String sql = "SELECT EXISTS (SELECT 1 FROM films WHERE id = ?)";
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(sql, Boolean.class, id));
+    }
+
+    @Override
+    public Set<Long> getExistingFilmIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return new HashSet<>();
+        }
+        Object[] all = ids.toArray();
+        Set<Long> existing = new HashSet<>();
+        for (int from = 0; from < all.length; from += MAX_IN_CLAUSE_SIZE) {
+            Object[] chunk = Arrays.copyOfRange(all, from, Math.min(from + MAX_IN_CLAUSE_SIZE, all.length));
+            String sql = "SELECT id FROM films WHERE id IN (" + InClause.placeholders(chunk.length) + ")";
+            existing.addAll(jdbcTemplate.queryForList(sql, Long.class, chunk));
+        }
+        return existing;
+    }
+
     @Override
     public List<Film> getAllFilms() {
-        String sql = "select f.*, r.name as rating_name, listagg(distinct g.id) as genres, " +
-                "count(distinct l.user_id) as likes_count from films f " +
+        String sql = "select f.*, listagg(fbg.genre_id) as genres from films f " +
+                "left join films_by_genres fbg on fbg.film_id = f.id " +
+                "group by f.id, f.name, f.description, f.release_date, f.duration, f.rating_id, f.likes_count";
+        return jdbcTemplate.query(sql, filmRowMapper);
+    }
+
+    @Override
+    public List<Film> getFilmsPage(long afterId, int limit) {
+        String sql = "select f.*, listagg(fbg.genre_id) as genres " +
+                "from (select * from films where id > ? order by id limit ?) f " +
                 "left join films_by_genres fbg on fbg.film_id = f.id " +
-                "left join genres g on g.id = fbg.genre_id " +
-                "join ratings r on r.id = f.rating_id " +
-                "left join likes l on l.film_id = f.id " +
-                "group by f.id, f.name, f.description, f.release_date, f.duration, f.rating_id, r.name";
-        return jdbcTemplate.query(sql, new FilmRowMapper());
+                "group by f.id, f.name, f.description, f.release_date, f.duration, f.rating_id, f.likes_count " +
+                "order by f.id";
+        return jdbcTemplate.query(sql, filmRowMapper, afterId, limit);
     }
 
     @Override
+    public void forEachFilm(Consumer<Film> action) {
+        String sql = "select f.*, listagg(fbg.genre_id) as genres from films f " +
+                "left join films_by_genres fbg on fbg.film_id = f.id " +
+                "group by f.id, f.name, f.description, f.release_date, f.duration, f.rating_id, f.likes_count " +
+                "order by f.id";
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql);
+            ps.setFetchSize(STREAM_FETCH_SIZE);
+            return ps;
+        }, rs -> {
+            action.accept(filmRowMapper.mapRow(rs, rs.getRow()));
+        });
+    }
+
+    @Override
+    @Transactional
     public void deleteFilm(long id) {
         String sql = "DELETE FROM films_by_genres WHERE film_id = ?";
         jdbcTemplate.update(sql, id);
@@ -97,6 +171,7 @@ public class FilmDbStorage implements FilmStorage {
     }
 
     @Override
+    @Transactional
     public void deleteAllFilms() {
         String sql = "DELETE FROM films_by_genres";
         jdbcTemplate.update(sql);
@@ -107,55 +182,257 @@ public class FilmDbStorage implements FilmStorage {
     }
 
     @Override
-    public void addLike(Long filmId, Long userId) {
-        String sql = "INSERT INTO likes (film_id, user_id) VALUES (?, ?)";
-        jdbcTemplate.update(sql, filmId, userId);
+    @Transactional
+    public boolean addLike(Long filmId, Long userId) {
+        String sql = "INSERT INTO likes (film_id, user_id) SELECT ?, ? " +
+                "WHERE NOT EXISTS (SELECT 1 FROM likes WHERE film_id = ? AND user_id = ?)";
+        try {
+            if (jdbcTemplate.update(sql, filmId, userId, filmId, userId) == 0) {
+                return false;
+            }
+        } catch (DuplicateKeyException e) {
+            // Такой же лайк успели добавить в параллельном запросе
+            return false;
+        }
+        jdbcTemplate.update("UPDATE films SET likes_count = likes_count + 1 WHERE id = ?", filmId);
+        return true;
     }
 
     @Override
-    public void deleteLike(Long filmId, Long userId) {
+    @Transactional
+    public boolean deleteLike(Long filmId, Long userId) {
         String sql = "DELETE FROM likes WHERE film_id = ? AND user_id = ?";
-        jdbcTemplate.update(sql, filmId, userId);
+        if (jdbcTemplate.update(sql, filmId, userId) == 0) {
+            return false;
+        }
+        jdbcTemplate.update("UPDATE films SET likes_count = likes_count - 1 WHERE id = ?", filmId);
+        return true;
+    }
+
+    @Override
+    public boolean likeExists(long filmId, long userId) {
+        String sql = "SELECT EXISTS (SELECT 1 FROM likes WHERE film_id = ? AND user_id = ?)";
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(sql, Boolean.class, filmId, userId));
+    }
+
+    /**
+     * Определяет исход каждой операции по текущим лайкам затронутых пар, после чего одним пакетом
+     * вставляет и удаляет только те лайки, итоговое состояние которых изменилось, и одним пакетом
+     * корректирует счётчики лайков фильмов. Результат считается по числу изменённых строк: если
+     * параллельный запрос успел изменить ту же пару, её операции считаются не применёнными. Это верно
+     * и для вставок, которые упёрлись в уникальный индекс, см. {@link #insertLikes(List)}.
+     */
+    @Override
+    @Transactional
+    public AppliedLikes applyLikes(List<LikeOperation> operations) {
+        boolean[] applied = new boolean[operations.size()];
+        if (operations.isEmpty()) {
+            return new AppliedLikes(applied, new HashMap<>());
+        }
+
+        Map<LikeKey, Boolean> initial = new LinkedHashMap<>();
+        for (LikeOperation operation : operations) {
+            initial.put(new LikeKey(operation.getFilmId(), operation.getUserId()), false);
+        }
+        for (LikeKey existing : findExistingLikes(initial.keySet())) {
+            initial.put(existing, true);
+        }
+
+        Map<LikeKey, Boolean> state = new HashMap<>(initial);
+        for (int i = 0; i < operations.size(); i++) {
+            LikeOperation operation = operations.get(i);
+            LikeKey key = new LikeKey(operation.getFilmId(), operation.getUserId());
+            boolean liked = operation.getOp() == LikeOperation.Action.LIKE;
+            applied[i] = state.put(key, liked) != liked;
+        }
+
+        List<LikeKey> inserts = new ArrayList<>();
+        List<LikeKey> deletes = new ArrayList<>();
+        initial.forEach((key, wasLiked) -> {
+            boolean liked = state.get(key);
+            if (liked && !wasLiked) {
+                inserts.add(key);
+            } else if (!liked && wasLiked) {
+                deletes.add(key);
+            }
+        });
+
+        Map<Long, Long> deltas = new HashMap<>();
+        Set<LikeKey> missed = new HashSet<>();
+        int[] inserted = insertLikes(inserts);
+        collectDeltas(deltas, missed, inserts, inserted, 1);
+        String deleteSql = "DELETE FROM likes WHERE film_id = ? AND user_id = ?";
+        int[] deleted = batchUpdate(deleteSql, deletes, (ps, key) -> {
+            ps.setLong(1, key.filmId());
+            ps.setLong(2, key.userId());
+        });
+        collectDeltas(deltas, missed, deletes, deleted, -1);
+
+        if (!missed.isEmpty()) {
+            for (int i = 0; i < operations.size(); i++) {
+                LikeOperation operation = operations.get(i);
+                if (missed.contains(new LikeKey(operation.getFilmId(), operation.getUserId()))) {
+                    applied[i] = false;
+                }
+            }
+        }
+
+        deltas.values().removeIf(delta -> delta == 0);
+        batchUpdate("UPDATE films SET likes_count = likes_count + ? WHERE id = ?",
+                new ArrayList<>(deltas.entrySet()), (ps, change) -> {
+                    ps.setLong(1, change.getValue());
+                    ps.setLong(2, change.getKey());
+                });
+        return new AppliedLikes(applied, deltas);
     }
 
     @Override
     public List<Film> getTopFilms(int count) {
-        String sql = "select f.*, r.name as rating_name, listagg(distinct g.id) as genres, " +
-                "count(distinct l.user_id) as likes_count from films f " +
+        String sql = "select f.*, listagg(fbg.genre_id) as genres " +
+                "from (select * from films order by likes_count desc, id limit ?) f " +
                 "left join films_by_genres fbg on fbg.film_id = f.id " +
-                "left join genres g on g.id = fbg.genre_id " +
-                "join ratings r on r.id = f.rating_id " +
-                "left join likes l on l.film_id = f.id " +
-                "group by f.id, f.name, f.description, f.release_date, f.duration, f.rating_id, r.name " +
-                "order by likes_count desc " +
-                "limit ?";
-        List<Film> films = jdbcTemplate.query(sql, new FilmRowMapper(), count);
-        return films;
+                "group by f.id, f.name, f.description, f.release_date, f.duration, f.rating_id, f.likes_count " +
+                "order by f.likes_count desc, f.id";
+        return jdbcTemplate.query(sql, filmRowMapper, count);
     }
 
-    private void updateGenres(Film film) {
-        jdbcTemplate.update("DELETE FROM films_by_genres WHERE film_id = ?", film.getId());
-        Set<Genre> genreObjects = film.getGenres();
-        if (genreObjects != null && !genreObjects.isEmpty()) {
-            Map<Long, Integer> params = new HashMap<>();
-            String sql = "INSERT INTO films_by_genres (film_id, genre_id) VALUES (?, ?);";
-            jdbcTemplate.batchUpdate(sql, new BatchPreparedStatementSetter() {
+    @Override
+    public Map<Long, Long> getLikesCounts() {
+        String sql = "SELECT id, likes_count FROM films";
+        Map<Long, Long> likesCounts = new HashMap<>();
+        jdbcTemplate.query(sql, rs -> {
+            likesCounts.put(rs.getLong("id"), rs.getLong("likes_count"));
+        });
+        return likesCounts;
+    }
 
-                @Override
-                public void setValues(PreparedStatement ps, int i) throws SQLException {
+    @Override
+    public void forEachLike(BiConsumer<Long, Long> action) {
+        String sql = "SELECT film_id, user_id FROM likes";
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql);
+            ps.setFetchSize(STREAM_FETCH_SIZE);
+            return ps;
+        }, rs -> {
+            action.accept(rs.getLong("film_id"), rs.getLong("user_id"));
+        });
+    }
 
-                    Genre genre = (Genre) genreObjects.toArray()[i];
-                    ps.setLong(1, film.getId());
-                    ps.setInt(2, genre.getId());
+    /**
+     * Пересчитывает счётчики лайков по таблице лайков и исправляет разошедшиеся значения.
+     *
+     * @return количество фильмов, у которых счётчик был исправлен
+     */
+    @Transactional
+    public int reconcileLikesCounts() {
+        String sql = "UPDATE films f SET likes_count = " +
+                "(SELECT count(distinct l.user_id) FROM likes l WHERE l.film_id = f.id) " +
+                "WHERE likes_count <> (SELECT count(distinct l.user_id) FROM likes l WHERE l.film_id = f.id)";
+        return jdbcTemplate.update(sql);
+    }
 
-                }
+    private List<LikeKey> findExistingLikes(Collection<LikeKey> keys) {
+        LikeKey[] all = keys.toArray(new LikeKey[0]);
+        List<LikeKey> existing = new ArrayList<>();
+        for (int from = 0; from < all.length; from += MAX_IN_CLAUSE_SIZE) {
+            int to = Math.min(from + MAX_IN_CLAUSE_SIZE, all.length);
+            String sql = "SELECT film_id, user_id FROM likes WHERE (film_id, user_id) IN (" +
+                    String.join(", ", Collections.nCopies(to - from, "(?, ?)")) + ")";
+            Object[] params = new Object[(to - from) * 2];
+            int i = 0;
+            for (int k = from; k < to; k++) {
+                params[i++] = all[k].filmId();
+                params[i++] = all[k].userId();
+            }
+            existing.addAll(jdbcTemplate.query(sql,
+                    (rs, rowNum) -> new LikeKey(rs.getLong("film_id"), rs.getLong("user_id")), params));
+        }
+        return existing;
+    }
 
-                @Override
-                public int getBatchSize() {
-                    return genreObjects.size();
-                }
+    /**
+     * Вставляет лайки одним пакетом. Проверка NOT EXISTS не видит лайк, который вставляет параллельная
+     * транзакция, поэтому такая вставка упирается в уникальный индекс. Пакет при этом выполняется
+     * до конца, и упавшие строки считаются не вставленными, а не откатывают всю операцию.
+     */
+    private int[] insertLikes(List<LikeKey> inserts) {
+        String sql = "INSERT INTO likes (film_id, user_id) SELECT ?, ? " +
+                "WHERE NOT EXISTS (SELECT 1 FROM likes WHERE film_id = ? AND user_id = ?)";
+        try {
+            return batchUpdate(sql, inserts, (ps, key) -> {
+                ps.setLong(1, key.filmId());
+                ps.setLong(2, key.userId());
+                ps.setLong(3, key.filmId());
+                ps.setLong(4, key.userId());
             });
+        } catch (DuplicateKeyException e) {
+            if (!(e.getCause() instanceof BatchUpdateException batch)
+                    || batch.getUpdateCounts().length != inserts.size()) {
+                throw e;
+            }
+            int[] inserted = batch.getUpdateCounts();
+            for (int i = 0; i < inserted.length; i++) {
+                if (inserted[i] == Statement.EXECUTE_FAILED) {
+                    inserted[i] = 0;
+                }
+            }
+            return inserted;
+        }
+    }
+
+    private void collectDeltas(Map<Long, Long> deltas, Set<LikeKey> missed, List<LikeKey> keys, int[] updated,
+                               long sign) {
+        for (int i = 0; i < keys.size(); i++) {
+            if (updated[i] != 0) {
+                deltas.merge(keys.get(i).filmId(), sign, Long::sum);
+            } else {
+                missed.add(keys.get(i));
+            }
+        }
+    }
+
+    private <T> int[] batchUpdate(String sql, List<T> items, ParameterizedPreparedStatementSetter<T> setter) {
+        if (items.isEmpty()) {
+            return new int[0];
+        }
+        return jdbcTemplate.batchUpdate(sql, items, items.size(), setter)[0];
+    }
+
+    private void updateGenres(Film film) {
+        Set<Integer> current = new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT genre_id FROM films_by_genres WHERE film_id = ?", Integer.class, film.getId()));
+        Set<Integer> wanted = genreIds(film);
+
+        List<Integer> removed = current.stream()
+                .filter(genreId -> !wanted.contains(genreId))
+                .toList();
+        batchUpdate("DELETE FROM films_by_genres WHERE film_id = ? AND genre_id = ?", removed, (ps, genreId) -> {
+            ps.setLong(1, film.getId());
+            ps.setInt(2, genreId);
+        });
+        wanted.removeAll(current);
+        insertGenres(film.getId(), wanted);
+    }
+
+    private void insertGenres(long filmId, Collection<Integer> genreIds) {
+        batchUpdate("INSERT INTO films_by_genres (film_id, genre_id) VALUES (?, ?)", List.copyOf(genreIds),
+                (ps, genreId) -> {
+                    ps.setLong(1, filmId);
+                    ps.setInt(2, genreId);
+                });
+    }
+
+    private static Set<Integer> genreIds(Film film) {
+        Set<Integer> genreIds = new LinkedHashSet<>();
+        if (film.getGenres() != null) {
+            for (Genre genre : film.getGenres()) {
+                genreIds.add(genre.getId());
+            }
         }
+        return genreIds;
+    }
+
+    private record LikeKey(long filmId, long userId) {
     }
 
-}
\ No newline at end of file
+}
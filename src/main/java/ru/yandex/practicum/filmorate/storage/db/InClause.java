@@ -0,0 +1,14 @@
+package ru.yandex.practicum.filmorate.storage.db;
+
+import java.util.Collections;
+
+final class InClause {
+
+    private InClause() {
+    }
+
+    static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+}
@@ -2,22 +2,28 @@ package ru.yandex.practicum.filmorate.storage.db;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Primary;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.SortedIds;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 import ru.yandex.practicum.filmorate.storage.db.mappers.UserRowMapper;
 
 import java.sql.PreparedStatement;
-import java.util.List;
-import java.util.Objects;
+import java.util.*;
+import java.util.function.Consumer;
 
 @Repository
 @Primary
 public class UserDbStorage implements UserStorage {
 
+    private static final int STREAM_FETCH_SIZE = 500;
+    private static final int MAX_IN_CLAUSE_SIZE = 1000;
+
     private final JdbcTemplate jdbcTemplate;
 
     @Autowired
@@ -60,6 +66,35 @@ public class UserDbStorage implements UserStorage {
         return users.getFirst();
     }
 
+    @Override
+    public List<User> getUsersByIds(Collection<Long> ids) {
+        return getUsersByIds(ids.stream()
+                .distinct()
+                .mapToLong(Long::longValue)
+                .toArray());
+    }
+
+    @Override
+    public boolean userExists(long id) {
+        String sql = "SELECT EXISTS (SELECT 1 FROM users WHERE id = ?)";
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(sql, Boolean.class, id));
+    }
+
+    @Override
+    public Set<Long> getExistingUserIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return new HashSet<>();
+        }
+        Object[] all = ids.toArray();
+        Set<Long> existing = new HashSet<>();
+        for (int from = 0; from < all.length; from += MAX_IN_CLAUSE_SIZE) {
+            Object[] chunk = Arrays.copyOfRange(all, from, Math.min(from + MAX_IN_CLAUSE_SIZE, all.length));
+            String sql = "SELECT id FROM users WHERE id IN (" + InClause.placeholders(chunk.length) + ")";
+            existing.addAll(jdbcTemplate.queryForList(sql, Long.class, chunk));
+        }
+        return existing;
+    }
+
     @Override
     public List<User> getAllUsers() {
         String sql = "SELECT * FROM users";
@@ -67,8 +102,31 @@ public class UserDbStorage implements UserStorage {
     }
 
     @Override
+    public List<User> getUsersPage(long afterId, int limit) {
+        String sql = "SELECT * FROM users WHERE id > ? ORDER BY id LIMIT ?";
+        return jdbcTemplate.query(sql, new UserRowMapper(), afterId, limit);
+    }
+
+    @Override
+    public void forEachUser(Consumer<User> action) {
+        String sql = "SELECT * FROM users ORDER BY id";
+        UserRowMapper mapper = new UserRowMapper();
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql);
+            ps.setFetchSize(STREAM_FETCH_SIZE);
+            return ps;
+        }, rs -> {
+            action.accept(mapper.mapRow(rs, rs.getRow()));
+        });
+    }
+
+    @Override
+    @Transactional
     public void deleteUser(long id) {
-        String sql = "DELETE FROM friends WHERE user_id = ?";
+        String sql = "UPDATE films SET likes_count = likes_count - 1 " +
+                "WHERE id IN (SELECT film_id FROM likes WHERE user_id = ?)";
+        jdbcTemplate.update(sql, id);
+        sql = "DELETE FROM friends WHERE user_id = ?";
         jdbcTemplate.update(sql, id);
         sql = "DELETE FROM friends WHERE friend_id = ?";
         jdbcTemplate.update(sql, id);
@@ -79,8 +137,11 @@ public class UserDbStorage implements UserStorage {
     }
 
     @Override
+    @Transactional
     public void deleteAllUsers() {
-        String sql = "DELETE FROM friends";
+        String sql = "UPDATE films SET likes_count = 0";
+        jdbcTemplate.update(sql);
+        sql = "DELETE FROM friends";
         jdbcTemplate.update(sql);
         sql = "DELETE FROM likes";
         jdbcTemplate.update(sql);
@@ -90,8 +151,13 @@ public class UserDbStorage implements UserStorage {
 
     @Override
     public void addFriend(long userId, long friendId) {
-        String sql = "INSERT INTO friends (user_id, friend_id) VALUES (?, ?)";
-        jdbcTemplate.update(sql, userId, friendId);
+        String sql = "INSERT INTO friends (user_id, friend_id) SELECT ?, ? " +
+                "WHERE NOT EXISTS (SELECT 1 FROM friends WHERE user_id = ? AND friend_id = ?)";
+        try {
+            jdbcTemplate.update(sql, userId, friendId, userId, friendId);
+        } catch (DuplicateKeyException ignored) {
+            // Та же заявка в друзья уже добавлена параллельным запросом
+        }
     }
 
     @Override
@@ -102,11 +168,7 @@ public class UserDbStorage implements UserStorage {
 
     @Override
     public List<User> getCommonFriends(long userId, long otherUserId) {
-        String sql = "SELECT u.* " +
-                "FROM users u " +
-                "JOIN friends f1 ON u.id = f1.friend_id " +
-                "JOIN friends f2 ON f1.user_id = ? AND f2.user_id = ? AND f1.friend_id = f2.friend_id";
-        return jdbcTemplate.query(sql, new UserRowMapper(), userId, otherUserId);
+        return getUsersByIds(SortedIds.intersect(getFriendIds(userId), getFriendIds(otherUserId)));
     }
 
     @Override
@@ -118,4 +180,56 @@ public class UserDbStorage implements UserStorage {
         return jdbcTemplate.query(sql, new UserRowMapper(), id);
     }
 
+    @Override
+    public long[] getFriendIds(long id) {
+        String sql = "SELECT friend_id FROM friends WHERE user_id = ? ORDER BY friend_id";
+        return jdbcTemplate.queryForList(sql, Long.class, id).stream()
+                .mapToLong(Long::longValue)
+                .toArray();
+    }
+
+    @Override
+    public Map<Long, long[]> getFriendIds(Collection<Long> ids) {
+        Map<Long, long[]> friendIds = new HashMap<>();
+        if (ids.isEmpty()) {
+            return friendIds;
+        }
+        Map<Long, List<Long>> lists = new HashMap<>();
+        Object[] all = ids.toArray();
+        for (int from = 0; from < all.length; from += MAX_IN_CLAUSE_SIZE) {
+            Object[] chunk = Arrays.copyOfRange(all, from, Math.min(from + MAX_IN_CLAUSE_SIZE, all.length));
+            String sql = "SELECT user_id, friend_id FROM friends WHERE user_id IN (" +
+                    InClause.placeholders(chunk.length) + ") ORDER BY user_id, friend_id";
+            jdbcTemplate.query(sql, rs -> {
+                lists.computeIfAbsent(rs.getLong("user_id"), k -> new ArrayList<>()).add(rs.getLong("friend_id"));
+            }, chunk);
+        }
+        for (Long id : ids) {
+            List<Long> list = lists.getOrDefault(id, List.of());
+            friendIds.put(id, list.stream().mapToLong(Long::longValue).toArray());
+        }
+        return friendIds;
+    }
+
+    @Override
+    public long[] getFollowerIds(long id) {
+        String sql = "SELECT user_id FROM friends WHERE friend_id = ? ORDER BY user_id";
+        return jdbcTemplate.queryForList(sql, Long.class, id).stream()
+                .mapToLong(Long::longValue)
+                .toArray();
+    }
+
+    private List<User> getUsersByIds(long[] ids) {
+        List<User> users = new ArrayList<>(ids.length);
+        UserRowMapper mapper = new UserRowMapper();
+        for (int from = 0; from < ids.length; from += MAX_IN_CLAUSE_SIZE) {
+            Object[] chunk = Arrays.stream(ids, from, Math.min(from + MAX_IN_CLAUSE_SIZE, ids.length))
+                    .boxed()
+                    .toArray();
+            String sql = "SELECT * FROM users WHERE id IN (" + InClause.placeholders(chunk.length) + ") ORDER BY id";
+            users.addAll(jdbcTemplate.query(sql, mapper, chunk));
+        }
+        return users;
+    }
+
 }
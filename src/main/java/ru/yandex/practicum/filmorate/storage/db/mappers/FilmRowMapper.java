@@ -3,14 +3,26 @@ package ru.yandex.practicum.filmorate.storage.db.mappers;
 import org.springframework.jdbc.core.RowMapper;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
-import ru.yandex.practicum.filmorate.model.Rating;
+import ru.yandex.practicum.filmorate.storage.db.DictionaryDbStorage;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.HashSet;
 import java.util.Set;
 
+/**
+ * Собирает фильм из строки с идентификатором рейтинга и списком идентификаторов жанров через запятую.
+ * Жанры и рейтинг берутся из справочника, а список жанров разбирается посимвольно,
+ * без разбиения строки и промежуточных объектов.
+ */
 public class FilmRowMapper implements RowMapper<Film> {
+
+    private final DictionaryDbStorage dictionary;
+
+    public FilmRowMapper(DictionaryDbStorage dictionary) {
+        this.dictionary = dictionary;
+    }
+
     @Override
     public Film mapRow(ResultSet rs, int rowNum) throws SQLException {
         Film film = new Film();
@@ -19,24 +31,32 @@ public class FilmRowMapper implements RowMapper<Film> {
         film.setDescription(rs.getString("description"));
         film.setReleaseDate(rs.getString("release_date"));
         film.setDuration(rs.getInt("duration"));
+        film.setMpa(dictionary.getRating(rs.getInt("rating_id")));
 
-        Rating rating = new Rating();
-        rating.setId(rs.getInt("rating_id"));
-        rating.setName(rs.getString("rating_name"));
-        film.setMpa(rating);
-
-        String genresStr = rs.getString("genres");
-        if (genresStr != null) {
-            Set<Genre> genres = new HashSet<>();
-            for (String genreStr : genresStr.split(",")) {
-                Genre genre = new Genre();
-                genre.setId(Integer.parseInt(genreStr));
-                genre.setName(Genre.values().get(Integer.parseInt(genreStr) - 1).getName());
-                genres.add(genre);
-            }
-            film.setGenres(genres);
+        String genreIds = rs.getString("genres");
+        if (genreIds != null) {
+            film.setGenres(parseGenres(genreIds));
         }
 
         return film;
     }
+
+    private Set<Genre> parseGenres(String genreIds) {
+        Set<Genre> genres = new HashSet<>();
+        int id = 0;
+        boolean hasDigits = false;
+        for (int i = 0; i <= genreIds.length(); i++) {
+            char c = i < genreIds.length() ? genreIds.charAt(i) : ',';
+            if (c >= '0' && c <= '9') {
+                id = id * 10 + (c - '0');
+                hasDigits = true;
+            } else if (c == ',' && hasDigits) {
+                Genre genre = dictionary.getGenre(id);
+                genres.add(genre != null ? genre : new Genre(id, null));
+                id = 0;
+                hasDigits = false;
+            }
+        }
+        return genres;
+    }
 }
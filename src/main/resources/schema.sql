@@ -17,6 +17,7 @@ CREATE TABLE IF NOT EXISTS films (
     release_date varchar(32),
     duration integer,
     rating_id integer references ratings,
+    likes_count integer DEFAULT 0 NOT NULL,
     CONSTRAINT films_pk PRIMARY KEY (id)
 );
 
@@ -50,3 +51,18 @@ CREATE TABLE IF NOT EXISTS likes (
     film_id integer references films,
     CONSTRAINT likes_pk PRIMARY KEY (id)
 );
+
+-- Likes counter --
+ALTER TABLE films ADD COLUMN IF NOT EXISTS likes_count integer DEFAULT 0 NOT NULL;
+CREATE INDEX IF NOT EXISTS films_likes_count_idx ON films (likes_count DESC, id);
+
+-- Natural keys and join indexes for likes, friends and genre links --
+DELETE FROM likes WHERE id NOT IN (SELECT min(id) FROM likes GROUP BY film_id, user_id);
+DELETE FROM friends WHERE id NOT IN (SELECT min(id) FROM friends GROUP BY user_id, friend_id);
+DELETE FROM films_by_genres WHERE id NOT IN (SELECT min(id) FROM films_by_genres GROUP BY film_id, genre_id);
+CREATE UNIQUE INDEX IF NOT EXISTS likes_film_user_uq ON likes (film_id, user_id);
+CREATE INDEX IF NOT EXISTS likes_user_film_idx ON likes (user_id, film_id);
+CREATE UNIQUE INDEX IF NOT EXISTS friends_user_friend_uq ON friends (user_id, friend_id);
+CREATE INDEX IF NOT EXISTS friends_friend_user_idx ON friends (friend_id, user_id);
+CREATE UNIQUE INDEX IF NOT EXISTS films_by_genres_film_genre_uq ON films_by_genres (film_id, genre_id);
+CREATE INDEX IF NOT EXISTS films_by_genres_genre_film_idx ON films_by_genres (genre_id, film_id);
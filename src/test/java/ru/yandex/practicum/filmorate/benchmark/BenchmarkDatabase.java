@@ -0,0 +1,90 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+/**
+ * Файловая база H2 со схемой приложения и синтетическими данными заданного объёма:
+ * {@code scale} фильмов и пользователей, один или два жанра у фильма, по одному лайку от каждого
+ * пользователя и по {@value #FRIENDS_PER_USER} друзей у каждого пользователя.
+ * Пользователи {@code id} и {@link #commonFriendsPeer(long)} имеют четырёх общих друзей,
+ * пользователь {@code id} лайкнул фильм {@link #likedFilm(long)} и не лайкал {@link #notLikedFilm(long)}.
+ * Заполненная база остаётся в {@code target/benchmark-db} и переиспользуется следующими запусками.
+ */
+final class BenchmarkDatabase implements AutoCloseable {
+
+    static final int FRIENDS_PER_USER = 5;
+    private static final int FRIEND_STEP = 7919;
+
+    private final int scale;
+    private final SingleConnectionDataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+
+    BenchmarkDatabase(int scale) {
+        this.scale = scale;
+        this.dataSource = new SingleConnectionDataSource(
+                "jdbc:h2:file:./target/benchmark-db/filmorate-" + scale, "sa", "", true);
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        if (!isSeeded()) {
+            jdbcTemplate.execute("DROP ALL OBJECTS");
+            new ResourceDatabasePopulator(new ClassPathResource("schema.sql"), new ClassPathResource("data.sql"))
+                    .execute(dataSource);
+            seed();
+            jdbcTemplate.execute("CREATE TABLE benchmark_dataset (scale INTEGER)");
+        }
+    }
+
+    JdbcTemplate getJdbcTemplate() {
+        return jdbcTemplate;
+    }
+
+    long commonFriendsPeer(long userId) {
+        return 1 + Math.floorMod(userId - 1 + FRIEND_STEP, scale);
+    }
+
+    long likedFilm(long userId) {
+        return 1 + Math.floorMod(userId * userId, scale);
+    }
+
+    long notLikedFilm(long userId) {
+        return 1 + likedFilm(userId) % scale;
+    }
+
+    @Override
+    public void close() {
+        jdbcTemplate.execute("SHUTDOWN");
+        dataSource.destroy();
+    }
+
+    private boolean isSeeded() {
+        Integer tables = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM information_schema.tables " +
+                "WHERE table_name = 'BENCHMARK_DATASET'", Integer.class);
+        return tables != null && tables > 0;
+    }
+
+    private void seed() {
+        jdbcTemplate.update("INSERT INTO films (name, description, release_date, duration, rating_id) " +
+                "SELECT 'Film ' || X, 'Description of film ' || X, '2000-01-01', 90 + MOD(X, 60), 1 + MOD(X, 5) " +
+                "FROM SYSTEM_RANGE(1, ?)", scale);
+        jdbcTemplate.update("INSERT INTO films_by_genres (film_id, genre_id) " +
+                "SELECT X, 1 + MOD(X, 6) FROM SYSTEM_RANGE(1, ?)", scale);
+        jdbcTemplate.update("INSERT INTO films_by_genres (film_id, genre_id) " +
+                "SELECT X, 1 + MOD(X + 3, 6) FROM SYSTEM_RANGE(1, ?) WHERE MOD(X, 2) = 0", scale);
+        jdbcTemplate.update("INSERT INTO users (email, login, name, birthday) " +
+                "SELECT 'user' || X || '@ya.ru', 'user' || X, 'User ' || X, '1990-01-01' FROM SYSTEM_RANGE(1, ?)",
+                scale);
+        jdbcTemplate.update("INSERT INTO friends (user_id, friend_id) " +
+                "SELECT u.X, 1 + MOD(u.X - 1 + k.X * ?, ?) " +
+                "FROM SYSTEM_RANGE(1, ?) u CROSS JOIN SYSTEM_RANGE(1, ?) k " +
+                "WHERE 1 + MOD(u.X - 1 + k.X * ?, ?) <> u.X",
+                FRIEND_STEP, scale, scale, FRIENDS_PER_USER, FRIEND_STEP, scale);
+        jdbcTemplate.update("INSERT INTO likes (film_id, user_id) " +
+                "SELECT 1 + MOD(X * X, ?), X FROM SYSTEM_RANGE(1, ?)", scale, scale);
+        jdbcTemplate.update("MERGE INTO films f USING (SELECT film_id, COUNT(*) AS likes FROM likes GROUP BY film_id) l " +
+                "ON f.id = l.film_id WHEN MATCHED THEN UPDATE SET likes_count = l.likes");
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+}
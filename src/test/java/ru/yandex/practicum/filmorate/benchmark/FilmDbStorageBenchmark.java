@@ -0,0 +1,97 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.db.DictionaryDbStorage;
+import ru.yandex.practicum.filmorate.storage.db.FilmDbStorage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class FilmDbStorageBenchmark {
+
+    private static final int BATCH_SIZE = 100;
+
+    @Param({"1000", "100000", "1000000"})
+    private int scale;
+
+    private BenchmarkDatabase database;
+    private FilmDbStorage filmStorage;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = new BenchmarkDatabase(scale);
+        DictionaryDbStorage dictionary = new DictionaryDbStorage(database.getJdbcTemplate());
+        dictionary.load();
+        filmStorage = new FilmDbStorage(database.getJdbcTemplate(), dictionary);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public List<Film> getTopFilms() {
+        return filmStorage.getTopFilms(10);
+    }
+
+    @Benchmark
+    public Film getFilmById() {
+        return filmStorage.getFilmById(randomId());
+    }
+
+    @Benchmark
+    public List<Film> getAllFilms() {
+        return filmStorage.getAllFilms();
+    }
+
+    @Benchmark
+    public List<Film> getFilmsByIds() {
+        List<Long> ids = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            ids.add(randomId());
+        }
+        return filmStorage.getFilmsByIds(ids);
+    }
+
+    // Жанры не меняются, поэтому измеряется чтение связей фильма с жанрами и проверка, что писать нечего
+    @Benchmark
+    public Film updateFilmWithSameGenres() {
+        Film film = filmStorage.getFilmById(randomId());
+        return filmStorage.updateFilm(film);
+    }
+
+    // Лайк добавляется и сразу удаляется, чтобы база, которая переиспользуется между запусками, не менялась
+    @Benchmark
+    public boolean addAndDeleteLike() {
+        long userId = randomId();
+        long filmId = database.notLikedFilm(userId);
+        return filmStorage.addLike(filmId, userId) & filmStorage.deleteLike(filmId, userId);
+    }
+
+    @Benchmark
+    public boolean addExistingLike() {
+        long userId = randomId();
+        return filmStorage.addLike(database.likedFilm(userId), userId);
+    }
+
+    @Benchmark
+    public boolean deleteMissingLike() {
+        long userId = randomId();
+        return filmStorage.deleteLike(database.notLikedFilm(userId), userId);
+    }
+
+    private long randomId() {
+        return ThreadLocalRandom.current().nextLong(1, scale + 1);
+    }
+
+}
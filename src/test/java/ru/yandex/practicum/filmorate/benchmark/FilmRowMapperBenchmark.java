@@ -0,0 +1,68 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.h2.tools.SimpleResultSet;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import ru.yandex.practicum.filmorate.storage.db.DictionaryDbStorage;
+import ru.yandex.practicum.filmorate.storage.db.mappers.FilmRowMapper;
+
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Разбор строк результата запроса фильмов без обращения к базе: строки отдаются из памяти,
+ * поэтому в результатах видны только затраты самого маппера. Результаты приводятся к одной строке.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@OperationsPerInvocation(FilmRowMapperBenchmark.ROWS)
+public class FilmRowMapperBenchmark {
+
+    static final int ROWS = 1000;
+
+    private BenchmarkDatabase database;
+    private FilmRowMapper mapper;
+    private SimpleResultSet resultSet;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = new BenchmarkDatabase(0);
+        DictionaryDbStorage dictionary = new DictionaryDbStorage(database.getJdbcTemplate());
+        dictionary.load();
+        mapper = new FilmRowMapper(dictionary);
+
+        resultSet = new SimpleResultSet();
+        resultSet.setAutoClose(false);
+        resultSet.addColumn("id", Types.BIGINT, 0, 0);
+        resultSet.addColumn("name", Types.VARCHAR, 0, 0);
+        resultSet.addColumn("description", Types.VARCHAR, 0, 0);
+        resultSet.addColumn("release_date", Types.VARCHAR, 0, 0);
+        resultSet.addColumn("duration", Types.INTEGER, 0, 0);
+        resultSet.addColumn("rating_id", Types.INTEGER, 0, 0);
+        resultSet.addColumn("likes_count", Types.INTEGER, 0, 0);
+        resultSet.addColumn("genres", Types.VARCHAR, 0, 0);
+        for (int i = 1; i <= ROWS; i++) {
+            resultSet.addRow((long) i, "Film " + i, "Description of film " + i, "2000-01-01", 120, 1 + i % 5, 0,
+                    i % 2 == 0 ? "1,4" : "2");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public void mapRows(Blackhole blackhole) throws SQLException {
+        resultSet.beforeFirst();
+        while (resultSet.next()) {
+            blackhole.consume(mapper.mapRow(resultSet, resultSet.getRow()));
+        }
+    }
+
+}
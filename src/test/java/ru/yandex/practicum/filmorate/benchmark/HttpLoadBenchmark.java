@@ -0,0 +1,166 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Нагрузочный тест чтения через HTTP, по которому выбирались настройки пула соединений и потоков
+ * обработки запросов. Приложение запускается отдельным процессом на базе {@link BenchmarkDatabase}
+ * с выключенным кэшем фильмов и флагом {@code -Djdk.tracePinnedThreads=short}. Клиенты без пауз
+ * запрашивают поровну {@code GET /films/{id}} и {@code GET /users/{id}/friends} со случайными id;
+ * первые {@value #WARMUP_SECONDS} с не учитываются. Лог приложения пишется в
+ * {@code target/load-app-<virtual>.log}, в конце печатаются пропускная способность, перцентили
+ * задержки и число сообщений о закреплённых (pinned) виртуальных потоках.
+ * <p>
+ * Аргументы: {@code scale clients seconds virtual [jdbc-url]}. Без {@code jdbc-url} приложение
+ * открывает файл базы само (embedded H2), иначе подключается по указанному адресу, например
+ * к серверу H2 по TCP, запущенному на том же файле.
+ */
+public final class HttpLoadBenchmark {
+
+    private static final int WARMUP_SECONDS = 5;
+    private static final int PORT = 18080;
+
+    private HttpLoadBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int scale = Integer.parseInt(args[0]);
+        int clients = Integer.parseInt(args[1]);
+        int seconds = Integer.parseInt(args[2]);
+        boolean virtual = Boolean.parseBoolean(args[3]);
+        String url = args.length > 4 ? args[4] : "jdbc:h2:file:./target/benchmark-db/filmorate-" + scale;
+
+        new BenchmarkDatabase(scale).close();
+        Path log = Path.of("target", "load-app-" + virtual + ".log");
+        Process app = startApplication(url, virtual, log);
+        try {
+            HttpClient http = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .executor(Executors.newVirtualThreadPerTaskExecutor())
+                    .connectTimeout(Duration.ofSeconds(30))
+                    .build();
+            String base = "http://localhost:" + PORT;
+            awaitStartup(http, base, app);
+            run(http, base, clients, seconds, scale);
+        } finally {
+            app.destroy();
+            app.waitFor(30, TimeUnit.SECONDS);
+        }
+        try (var lines = Files.lines(log)) {
+            System.out.println("pinned: " + lines.filter(line -> line.contains("pinned")).count());
+        }
+    }
+
+    private static Process startApplication(String url, boolean virtual, Path log) throws IOException {
+        List<String> command = new ArrayList<>(List.of(
+                Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-Xmx2g",
+                "-Djdk.tracePinnedThreads=short",
+                "-cp", System.getProperty("java.class.path"),
+                FilmorateApplication.class.getName(),
+                "--server.port=" + PORT,
+                "--spring.datasource.url=" + url,
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--filmorate.cache.films.max-size=0",
+                "--filmorate.likes.reconciliation.initial-delay=PT1H",
+                "--spring.threads.virtual.enabled=" + virtual));
+        return new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+    }
+
+    private static void awaitStartup(HttpClient http, String base, Process app) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(base + "/genres")).build();
+        for (int attempt = 0; attempt < 120; attempt++) {
+            if (!app.isAlive()) {
+                throw new IllegalStateException("Приложение завершилось при запуске, см. лог");
+            }
+            try {
+                http.send(request, HttpResponse.BodyHandlers.discarding());
+                return;
+            } catch (ConnectException e) {
+                Thread.sleep(1000);
+            }
+        }
+        throw new IllegalStateException("Приложение не запустилось за 120 с");
+    }
+
+    private static void run(HttpClient http, String base, int clients, int seconds, int scale) {
+        long warmupEnd = System.nanoTime() + TimeUnit.SECONDS.toNanos(WARMUP_SECONDS);
+        long end = warmupEnd + TimeUnit.SECONDS.toNanos(seconds);
+        Queue<long[]> latencies = new ConcurrentLinkedQueue<>();
+        AtomicLong ok = new AtomicLong();
+        AtomicLong errors = new AtomicLong();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int client = 0; client < clients; client++) {
+                executor.submit(() -> {
+                    long[] clientLatencies = new long[1024];
+                    int count = 0;
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (long startedAt = System.nanoTime(); startedAt < end; startedAt = System.nanoTime()) {
+                        long id = random.nextLong(1, scale + 1);
+                        String path = random.nextBoolean() ? "/films/" + id : "/users/" + id + "/friends";
+                        HttpRequest request = HttpRequest.newBuilder(URI.create(base + path))
+                                .timeout(Duration.ofSeconds(60))
+                                .build();
+                        boolean succeeded;
+                        try {
+                            succeeded = http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+                        } catch (IOException e) {
+                            succeeded = false;
+                        }
+                        long latency = System.nanoTime() - startedAt;
+                        if (startedAt < warmupEnd) {
+                            continue;
+                        }
+                        if (!succeeded) {
+                            errors.incrementAndGet();
+                            continue;
+                        }
+                        if (count == clientLatencies.length) {
+                            clientLatencies = Arrays.copyOf(clientLatencies, count * 2);
+                        }
+                        clientLatencies[count++] = latency;
+                        ok.incrementAndGet();
+                    }
+                    latencies.add(Arrays.copyOf(clientLatencies, count));
+                    return null;
+                });
+            }
+        }
+
+        long[] sorted = latencies.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        if (sorted.length == 0) {
+            System.out.printf("clients=%d ok=0 errors=%d%n", clients, errors.get());
+            return;
+        }
+        System.out.printf("clients=%d ok=%d errors=%d rps=%.0f p50=%.1fms p99=%.1fms max=%.1fms%n",
+                clients, ok.get(), errors.get(), ok.get() / (double) seconds,
+                sorted[sorted.length / 2] / 1e6, sorted[(int) (sorted.length * 0.99)] / 1e6,
+                sorted[sorted.length - 1] / 1e6);
+    }
+
+}
@@ -0,0 +1,78 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.Dictionaries;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Rating;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class InMemoryStorageBenchmark {
+
+    private static final int FRIEND_STEP = 7919;
+
+    @Param({"1000", "100000", "1000000"})
+    private int scale;
+
+    private InMemoryFilmStorage filmStorage;
+    private InMemoryUserStorage userStorage;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        filmStorage = new InMemoryFilmStorage();
+        userStorage = new InMemoryUserStorage();
+        Rating rating = Dictionaries.ratings().getFirst();
+        for (int i = 1; i <= scale; i++) {
+            filmStorage.addFilm(new Film(0, "Film " + i, "Description of film " + i, "2000-01-01", 120,
+                    new HashSet<>(), rating));
+            userStorage.addUser(new User(0, "user" + i + "@ya.ru", "user" + i, "User " + i, "1990-01-01",
+                    new HashSet<>()));
+        }
+        for (long userId = 1; userId <= scale; userId++) {
+            filmStorage.addLike(1 + Math.floorMod(userId * userId, (long) scale), userId);
+            for (int k = 1; k <= BenchmarkDatabase.FRIENDS_PER_USER; k++) {
+                long friendId = 1 + Math.floorMod(userId - 1 + (long) k * FRIEND_STEP, (long) scale);
+                if (friendId != userId) {
+                    userStorage.addFriend(userId, friendId);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public Film getFilmById() {
+        return filmStorage.getFilmById(ThreadLocalRandom.current().nextLong(1, scale + 1));
+    }
+
+    @Benchmark
+    public boolean addAndDeleteLike() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long filmId = random.nextLong(1, scale + 1);
+        long userId = random.nextLong(1, scale + 1);
+        return filmStorage.addLike(filmId, userId) & filmStorage.deleteLike(filmId, userId);
+    }
+
+    @Benchmark
+    public List<Film> getTopFilms() {
+        return filmStorage.getTopFilms(10);
+    }
+
+    @Benchmark
+    public List<User> getCommonFriends() {
+        long userId = ThreadLocalRandom.current().nextLong(1, scale + 1);
+        return userStorage.getCommonFriends(userId, 1 + Math.floorMod(userId - 1 + FRIEND_STEP, (long) scale));
+    }
+
+}
@@ -0,0 +1,47 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.db.UserDbStorage;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class UserDbStorageBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int scale;
+
+    private BenchmarkDatabase database;
+    private UserDbStorage userStorage;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = new BenchmarkDatabase(scale);
+        userStorage = new UserDbStorage(database.getJdbcTemplate());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public List<User> getCommonFriends() {
+        long userId = ThreadLocalRandom.current().nextLong(1, scale + 1);
+        return userStorage.getCommonFriends(userId, database.commonFriendsPeer(userId));
+    }
+
+    @Benchmark
+    public List<User> getFriends() {
+        return userStorage.getFriends(ThreadLocalRandom.current().nextLong(1, scale + 1));
+    }
+
+}
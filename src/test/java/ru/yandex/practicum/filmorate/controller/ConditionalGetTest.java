@@ -0,0 +1,156 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.exceptions.ResourceNotFoundException;
+import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.model.Dictionaries;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Rating;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.DictionaryService;
+import ru.yandex.practicum.filmorate.service.EntityVersions;
+
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@AutoConfigureTestDatabase
+@AutoConfigureMockMvc
+@SpringBootTest
+public class ConditionalGetTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private FilmController filmController;
+
+    @Autowired
+    private UserController userController;
+
+    @Autowired
+    private DictionaryService dictionaryService;
+
+    @Autowired
+    private EntityVersions entityVersions;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    public void setUp() {
+        filmController.deleteAllFilms();
+        userController.deleteAllUsers();
+    }
+
+    @Test
+    public void isAnsweringNotModifiedUntilFilmChanges() throws Exception {
+        Film film = filmController.create(new Film(0, "Film", "Description", "2020-01-01", 120, new HashSet<>(),
+                Dictionaries.ratings().getFirst()));
+        String url = "/films/" + film.getId();
+        String etag = etag(url);
+
+        mockMvc.perform(get(url).header("If-None-Match", etag)).andExpect(status().isNotModified());
+
+        film.setName("New name");
+        filmController.update(film);
+        mockMvc.perform(get(url).header("If-None-Match", etag)).andExpect(status().isOk());
+    }
+
+    @Test
+    public void isNotAnsweringNotModifiedForDeletedFilm() throws Exception {
+        Film film = filmController.create(new Film(0, "Film", "Description", "2020-01-01", 120, new HashSet<>(),
+                Dictionaries.ratings().getFirst()));
+        String url = "/films/" + film.getId();
+        String etag = etag(url);
+
+        filmController.deleteFilm(film.getId());
+        mockMvc.perform(get(url).header("If-None-Match", etag)).andExpect(status().isNotFound());
+        // Такой же ETag у любого фильма, который не менялся с запуска
+        mockMvc.perform(get(url).header("If-None-Match", entityVersions.filmTag(film.getId())))
+                .andExpect(status().isNotFound())
+                .andExpect(header().doesNotExist("ETag"));
+    }
+
+    @Test
+    public void isChangingFriendsTagWhenFriendIsRenamed() throws Exception {
+        User user = createUser("user");
+        User friend = createUser("friend");
+        userController.addFriend(user.getId(), friend.getId());
+        String url = "/users/" + user.getId() + "/friends";
+        String etag = etag(url);
+
+        mockMvc.perform(get(url).header("If-None-Match", etag)).andExpect(status().isNotModified());
+
+        friend.setName("Renamed");
+        userController.update(friend);
+        assertNotEquals(etag, etag(url));
+    }
+
+    @Test
+    public void isKeepingPopularTagWhenOrderIsUnchanged() throws Exception {
+        Film first = filmController.create(new Film(0, "First", "Description", "2020-01-01", 120, new HashSet<>(),
+                Dictionaries.ratings().getFirst()));
+        Film second = filmController.create(new Film(0, "Second", "Description", "2020-01-01", 120,
+                new HashSet<>(), Dictionaries.ratings().getFirst()));
+        User user = createUser("user");
+        User other = createUser("other");
+        filmController.addLike(first.getId(), user.getId());
+        String etag = etag("/films/popular");
+
+        filmController.addLike(first.getId(), other.getId());
+        mockMvc.perform(get("/films/popular").header("If-None-Match", etag)).andExpect(status().isNotModified());
+
+        filmController.addLike(second.getId(), user.getId());
+        filmController.addLike(second.getId(), other.getId());
+        filmController.removeLike(first.getId(), other.getId());
+        mockMvc.perform(get("/films/popular").header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(second.getId()))
+                .andExpect(jsonPath("$[1].id").value(first.getId()));
+    }
+
+    @Test
+    public void isRefreshingFilmsWhenDictionariesChange() throws Exception {
+        Rating rating = Dictionaries.ratings().getFirst();
+        Film film = filmController.create(new Film(0, "Film", "Description", "2020-01-01", 120, new HashSet<>(),
+                rating));
+        String url = "/films/" + film.getId();
+        String etag = etag(url);
+
+        jdbcTemplate.update("UPDATE ratings SET name = ? WHERE id = ?", "G+", rating.getId());
+        try {
+            dictionaryService.refresh();
+            mockMvc.perform(get(url).header("If-None-Match", etag))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.mpa.name").value("G+"));
+        } finally {
+            jdbcTemplate.update("UPDATE ratings SET name = ? WHERE id = ?", rating.getName(), rating.getId());
+            dictionaryService.refresh();
+        }
+    }
+
+    private String etag(String url) throws Exception {
+        String etag = mockMvc.perform(get(url))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        assertNotNull(etag);
+        return etag;
+    }
+
+    private User createUser(String login) throws ValidationException {
+        return userController.create(new User(0, login + "@ya.ru", login, login, "1997-08-21", new HashSet<>()));
+    }
+
+}
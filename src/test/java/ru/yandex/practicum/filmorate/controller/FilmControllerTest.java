@@ -1,5 +1,7 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import org.junit.jupiter.api.BeforeEach;
@@ -7,19 +9,32 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
 import ru.yandex.practicum.filmorate.exceptions.ResourceNotFoundException;
 import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.model.Dictionaries;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.model.LikeOperationResult;
+import ru.yandex.practicum.filmorate.model.LookupResult;
 import ru.yandex.practicum.filmorate.model.Rating;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @AutoConfigureTestDatabase
 @SpringBootTest
@@ -33,6 +48,16 @@ public class FilmControllerTest {
     @Autowired
     private FilmController filmController;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    private MockMvc mockMvc;
 
     @BeforeEach
     public void setUp() {
@@ -41,6 +66,7 @@ public class FilmControllerTest {
                 .setPrettyPrinting()
                 .create();
 
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
         filmController.deleteAllFilms();
     }
 
@@ -48,8 +74,8 @@ public class FilmControllerTest {
     @Test
     public void isCreatingAndGettingFilms() throws ValidationException, ResourceNotFoundException {
         Set<Genre> genres = new HashSet<>();
-        genres.add(Genre.values().getFirst());
-        Rating rating = Rating.values().getFirst();
+        genres.add(Dictionaries.genres().getFirst());
+        Rating rating = Dictionaries.ratings().getFirst();
         Film film = new Film(1, "Test name", "Test desc", "1997-08-21", 120, genres, rating);
         List<Film> films = new ArrayList<>();
         films.add(film);
@@ -60,11 +86,31 @@ public class FilmControllerTest {
         assertEquals(toCheckWith, gson.toJson(filmController.getFilms()));
     }
 
+    @Test
+    public void isGettingFilmsPageAfterCursor() throws ValidationException, ResourceNotFoundException {
+        Set<Genre> genres = new HashSet<>();
+        genres.add(Dictionaries.genres().getFirst());
+        Rating rating = Dictionaries.ratings().getFirst();
+        Film film1 = new Film(1, "Film 1", "Description 1", "2020-01-01", 120, genres, rating);
+        Film film2 = new Film(2, "Film 2", "Description 2", "2020-01-02", 150, genres, rating);
+        Film film3 = new Film(3, "Film 3", "Description 3", "2020-01-03", 100, genres, rating);
+        filmController.create(film1);
+        filmController.create(film2);
+        filmController.create(film3);
+
+        List<Film> firstPage = filmController.getFilmsPage(0, 2);
+        List<Film> secondPage = filmController.getFilmsPage(firstPage.getLast().getId(), 2);
+
+        assertEquals(List.of(film1.getId(), film2.getId()), firstPage.stream().map(Film::getId).toList());
+        assertEquals(List.of(film3.getId()), secondPage.stream().map(Film::getId).toList());
+        assertThrows(ValidationException.class, () -> filmController.getFilmsPage(0, 0));
+    }
+
     @Test
     public void isUpdatingFilm() throws ValidationException, ResourceNotFoundException {
         Set<Genre> genres = new HashSet<>();
-        genres.add(Genre.values().getFirst());
-        Rating rating = Rating.values().getFirst();
+        genres.add(Dictionaries.genres().getFirst());
+        Rating rating = Dictionaries.ratings().getFirst();
         Film film = new Film(1, "Test name", "Test desc", "1997-08-21", 120, genres, rating);
         filmController.create(film);
 
@@ -79,8 +125,8 @@ public class FilmControllerTest {
     @Test
     public void isValidatingFilms() {
         Set<Genre> genres = new HashSet<>();
-        genres.add(Genre.values().getFirst());
-        Rating rating = Rating.values().getFirst();
+        genres.add(Dictionaries.genres().getFirst());
+        Rating rating = Dictionaries.ratings().getFirst();
         boolean isError = false;
         Film film = new Film(1, "", "Test desc", "1997-08-21", 120, genres, rating);
         try {
@@ -95,10 +141,10 @@ public class FilmControllerTest {
     }
 
     @Test
-    public void isGettingTopFilms() throws ValidationException, ResourceNotFoundException {
+    public void isGettingTopFilms() throws Exception {
         Set<Genre> genres = new HashSet<>();
-        genres.add(Genre.values().getFirst());
-        Rating rating = Rating.values().getFirst();
+        genres.add(Dictionaries.genres().getFirst());
+        Rating rating = Dictionaries.ratings().getFirst();
         Film film1 = new Film(1, "Film 1", "Description 1", "2020-01-01", 120, genres, rating);
         Film film2 = new Film(2, "Film 2", "Description 2", "2020-01-02", 150, genres, rating);
         Film film3 = new Film(3, "Film 3", "Description 3", "2020-01-03", 100, genres, rating);
@@ -121,7 +167,7 @@ public class FilmControllerTest {
         filmController.addLike(film3.getId(), user3.getId());
 
 
-        List<Film> topFilms = filmController.getTopFilms(2);
+        List<Film> topFilms = getTopFilms(2, null, null);
         List<Film> expectedTopFilms = List.of(film3, film2);
 
         assertEquals(expectedTopFilms.size(), topFilms.size());
@@ -129,10 +175,10 @@ public class FilmControllerTest {
     }
 
     @Test
-    public void isRemovingLike() throws ValidationException, ResourceNotFoundException {
+    public void isRemovingLike() throws Exception {
         Set<Genre> genres = new HashSet<>();
-        genres.add(Genre.values().getFirst());
-        Rating rating = Rating.values().getFirst();
+        genres.add(Dictionaries.genres().getFirst());
+        Rating rating = Dictionaries.ratings().getFirst();
         Film film = new Film(1, "Test Film", "Test desc", "2020-01-01", 120, genres, rating);
         filmController.create(film);
         Film film2 = new Film(2, "Test Film", "Test desc", "2020-01-01", 120, genres, rating);
@@ -147,21 +193,100 @@ public class FilmControllerTest {
         filmController.addLike(film2.getId(), user.getId());
         filmController.addLike(film2.getId(), user2.getId());
 
-        List<Film> topFilmsBeforeRemoval = filmController.getTopFilms(1);
+        List<Film> topFilmsBeforeRemoval = getTopFilms(1, null, null);
         assertEquals(gson.toJson(film2), gson.toJson(topFilmsBeforeRemoval.getFirst()));
 
         filmController.removeLike(film2.getId(), user.getId());
         filmController.removeLike(film2.getId(), user2.getId());
 
-        List<Film> topFilmsAfterRemoval = filmController.getTopFilms(1);
+        List<Film> topFilmsAfterRemoval = getTopFilms(1, null, null);
         assertEquals(gson.toJson(film), gson.toJson(topFilmsAfterRemoval.getFirst()));
     }
 
+    @Test
+    public void isIgnoringRepeatedLike() throws Exception {
+        Set<Genre> genres = new HashSet<>();
+        genres.add(Dictionaries.genres().getFirst());
+        Rating rating = Dictionaries.ratings().getFirst();
+        Film film1 = new Film(1, "Film 1", "Description 1", "2020-01-01", 120, genres, rating);
+        Film film2 = new Film(2, "Film 2", "Description 2", "2020-01-02", 150, genres, rating);
+        filmController.create(film1);
+        filmController.create(film2);
+
+        User user1 = new User(1, "test1@ya.ru", "testLogin1", "Test user1", "1997-08-21", null);
+        userController.create(user1);
+        User user2 = new User(2, "test2@ya.ru", "testLogin2", "Test user2", "1997-08-21", null);
+        userController.create(user2);
+
+        filmController.addLike(film1.getId(), user1.getId());
+        filmController.addLike(film1.getId(), user1.getId());
+        filmController.addLike(film1.getId(), user1.getId());
+        filmController.addLike(film2.getId(), user1.getId());
+        filmController.addLike(film2.getId(), user2.getId());
+
+        assertEquals(film2.getId(), getTopFilms(1, null, null).getFirst().getId());
+
+        filmController.removeLike(film1.getId(), user1.getId());
+        assertEquals(List.of(film2.getId(), film1.getId()),
+                getTopFilms(2, null, null).stream().map(Film::getId).toList());
+    }
+
+    @Test
+    public void isApplyingLikesBatch() throws Exception {
+        Set<Genre> genres = new HashSet<>();
+        genres.add(Dictionaries.genres().getFirst());
+        Rating rating = Dictionaries.ratings().getFirst();
+        Film film1 = new Film(1, "Film 1", "Description 1", "2020-01-01", 120, genres, rating);
+        Film film2 = new Film(2, "Film 2", "Description 2", "2020-01-02", 150, genres, rating);
+        filmController.create(film1);
+        filmController.create(film2);
+
+        User user1 = new User(1, "test1@ya.ru", "testLogin1", "Test user1", "1997-08-21", null);
+        userController.create(user1);
+        User user2 = new User(2, "test2@ya.ru", "testLogin2", "Test user2", "1997-08-21", null);
+        userController.create(user2);
+
+        List<LikeOperationResult> results = filmController.applyLikes(List.of(
+                new LikeOperation(film1.getId(), user1.getId(), LikeOperation.Action.LIKE),
+                new LikeOperation(film1.getId(), user1.getId(), LikeOperation.Action.LIKE),
+                new LikeOperation(film2.getId(), user1.getId(), LikeOperation.Action.LIKE),
+                new LikeOperation(film2.getId(), user1.getId(), LikeOperation.Action.UNLIKE),
+                new LikeOperation(film2.getId(), user2.getId(), LikeOperation.Action.LIKE),
+                new LikeOperation(film1.getId(), user2.getId(), LikeOperation.Action.LIKE),
+                new LikeOperation(999, user1.getId(), LikeOperation.Action.LIKE),
+                new LikeOperation(film1.getId(), 999, LikeOperation.Action.LIKE)
+        ));
+
+        assertEquals(List.of(
+                LikeOperationResult.Status.APPLIED,
+                LikeOperationResult.Status.UNCHANGED,
+                LikeOperationResult.Status.APPLIED,
+                LikeOperationResult.Status.APPLIED,
+                LikeOperationResult.Status.APPLIED,
+                LikeOperationResult.Status.APPLIED,
+                LikeOperationResult.Status.FILM_NOT_FOUND,
+                LikeOperationResult.Status.USER_NOT_FOUND
+        ), results.stream().map(LikeOperationResult::getStatus).toList());
+        assertEquals(film1.getId(), getTopFilms(1, null, null).getFirst().getId());
+
+        results = filmController.applyLikes(List.of(
+                new LikeOperation(film2.getId(), user2.getId(), LikeOperation.Action.LIKE),
+                new LikeOperation(film1.getId(), user1.getId(), LikeOperation.Action.UNLIKE),
+                new LikeOperation(film1.getId(), user2.getId(), LikeOperation.Action.UNLIKE)
+        ));
+        assertEquals(List.of(
+                LikeOperationResult.Status.UNCHANGED,
+                LikeOperationResult.Status.APPLIED,
+                LikeOperationResult.Status.APPLIED
+        ), results.stream().map(LikeOperationResult::getStatus).toList());
+        assertEquals(film2.getId(), getTopFilms(1, null, null).getFirst().getId());
+    }
+
     @Test
     public void isDeletingFilm() throws ValidationException, ResourceNotFoundException {
         Set<Genre> genres = new HashSet<>();
-        genres.add(Genre.values().getFirst());
-        Rating rating = Rating.values().getFirst();
+        genres.add(Dictionaries.genres().getFirst());
+        Rating rating = Dictionaries.ratings().getFirst();
         Film film = new Film(1, "Film to delete", "Description", "2020-01-01", 120, genres, rating);
         filmController.create(film);
 
@@ -194,4 +319,100 @@ public class FilmControllerTest {
         assertTrue(isError);
     }
 
+    @Test
+    public void isGettingPopularFilmsByGenreAndYear() throws Exception {
+        Genre comedy = Dictionaries.genres().get(0);
+        Genre drama = Dictionaries.genres().get(1);
+        Rating rating = Dictionaries.ratings().getFirst();
+        Film film1 = new Film(1, "Film 1", "Description 1", "2020-01-01", 120, new HashSet<>(Set.of(comedy)), rating);
+        Film film2 = new Film(2, "Film 2", "Description 2", "2020-06-01", 120, new HashSet<>(Set.of(drama)), rating);
+        Film film3 = new Film(3, "Film 3", "Description 3", "2021-01-01", 120, new HashSet<>(Set.of(comedy)), rating);
+        filmController.create(film1);
+        filmController.create(film2);
+        filmController.create(film3);
+
+        User user1 = new User(1, "test1@ya.ru", "testLogin1", "Test user1", "1997-08-21", null);
+        User user2 = new User(2, "test2@ya.ru", "testLogin2", "Test user2", "1997-08-21", null);
+        userController.create(user1);
+        userController.create(user2);
+        filmController.addLike(film1.getId(), user1.getId());
+        filmController.addLike(film1.getId(), user2.getId());
+        filmController.addLike(film2.getId(), user1.getId());
+
+        assertEquals(List.of(film1.getId(), film3.getId()), topFilmIds(comedy.getId(), null));
+        assertEquals(List.of(film1.getId(), film2.getId()), topFilmIds(null, 2020));
+        assertEquals(List.of(film3.getId()), topFilmIds(comedy.getId(), 2021));
+        assertTrue(topFilmIds(drama.getId(), 2021).isEmpty());
+
+        film1.setGenres(new HashSet<>(Set.of(drama)));
+        filmController.update(film1);
+
+        assertEquals(List.of(film3.getId()), topFilmIds(comedy.getId(), null));
+        assertEquals(List.of(film1.getId(), film2.getId()), topFilmIds(drama.getId(), 2020));
+    }
+
+    @Test
+    public void isGettingFilmsByIdsInRequestOrder() throws ValidationException, ResourceNotFoundException {
+        Rating rating = Dictionaries.ratings().getFirst();
+        Film film1 = filmController.create(new Film(0, "Film 1", "Description 1", "2020-01-01", 120,
+                new HashSet<>(), rating));
+        Film film2 = filmController.create(new Film(0, "Film 2", "Description 2", "2020-01-01", 120,
+                new HashSet<>(Set.of(Dictionaries.genres().getFirst())), rating));
+
+        LookupResult<Film> result = filmController.getFilmsByIds(List.of(film2.getId(), -1L, film1.getId(),
+                film2.getId()));
+
+        assertEquals(List.of(film2.getId(), film1.getId()), result.getItems().stream().map(Film::getId).toList());
+        assertEquals(List.of(-1L), result.getMissingIds());
+        assertEquals(1, result.getItems().getFirst().getGenres().size());
+        assertThrows(ValidationException.class, () -> filmController.getFilmsByIds(List.of()));
+    }
+
+    @Test
+    public void isRewritingOnlyChangedGenreLinks() throws ValidationException, ResourceNotFoundException {
+        List<Genre> genres = Dictionaries.genres();
+        Film film = filmController.create(new Film(0, "Film", "Description", "2020-01-01", 120,
+                new HashSet<>(Set.of(genres.get(0), genres.get(1))), Dictionaries.ratings().getFirst()));
+        Map<Integer, Long> linksBefore = genreLinks(film.getId());
+
+        film.setGenres(new HashSet<>(Set.of(genres.get(1), genres.get(2))));
+        filmController.update(film);
+        Map<Integer, Long> linksAfter = genreLinks(film.getId());
+
+        assertEquals(Set.of(genres.get(1).getId(), genres.get(2).getId()), linksAfter.keySet());
+        assertEquals(linksBefore.get(genres.get(1).getId()), linksAfter.get(genres.get(1).getId()));
+        assertEquals(2, filmController.getFilmById(film.getId()).getGenres().size());
+
+        filmController.update(film);
+        assertEquals(linksAfter, genreLinks(film.getId()));
+    }
+
+    private Map<Integer, Long> genreLinks(long filmId) {
+        Map<Integer, Long> links = new HashMap<>();
+        jdbcTemplate.query("SELECT id, genre_id FROM films_by_genres WHERE film_id = ?",
+                rs -> {
+                    links.put(rs.getInt("genre_id"), rs.getLong("id"));
+                }, filmId);
+        return links;
+    }
+
+    private List<Long> topFilmIds(Integer genreId, Integer year) throws Exception {
+        return getTopFilms(10, genreId, year).stream().map(Film::getId).toList();
+    }
+
+    private List<Film> getTopFilms(int count, Integer genreId, Integer year) throws Exception {
+        MockHttpServletRequestBuilder request = get("/films/popular").param("count", String.valueOf(count));
+        if (genreId != null) {
+            request.param("genreId", String.valueOf(genreId));
+        }
+        if (year != null) {
+            request.param("year", String.valueOf(year));
+        }
+        byte[] response = mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+        return objectMapper.readValue(response, new TypeReference<>() {
+        });
+    }
+
 }
@@ -0,0 +1,91 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.model.Dictionaries;
+import ru.yandex.practicum.filmorate.service.DictionaryService;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@AutoConfigureTestDatabase
+@AutoConfigureMockMvc
+@SpringBootTest
+public class GenreControllerTest {
+
+    private static final String NEW_GENRE = "Фантастика";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DictionaryService dictionaryService;
+
+    @AfterEach
+    public void tearDown() {
+        jdbcTemplate.update("DELETE FROM genres WHERE name = ?", NEW_GENRE);
+        dictionaryService.refresh();
+    }
+
+    @Test
+    public void isServingGenresFromDictionary() throws Exception {
+        mockMvc.perform(get("/genres"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(Dictionaries.genres().size()))
+                .andExpect(jsonPath("$[0].name").value(Dictionaries.genres().getFirst().getName()));
+        mockMvc.perform(get("/genres/" + Dictionaries.genres().getLast().getId())).andExpect(status().isOk());
+        mockMvc.perform(get("/genres/" + (Dictionaries.genres().size() + 1))).andExpect(status().isNotFound());
+        mockMvc.perform(get("/mpa"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(Dictionaries.ratings().size()))
+                .andExpect(jsonPath("$[-1].name").value(Dictionaries.ratings().getLast().getName()));
+        mockMvc.perform(get("/mpa/0")).andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void isReadingGenresAndRatingOfFilmFromJson() throws Exception {
+        String json = "{\"name\":\"Film\",\"description\":\"Description\",\"releaseDate\":\"2020-01-01\","
+                + "\"duration\":120,\"genres\":[{\"id\":2}],\"mpa\":{\"id\":3}}";
+
+        String response = mockMvc.perform(post("/films").contentType(MediaType.APPLICATION_JSON).content(json))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        Number id = JsonPath.read(response, "$.id");
+
+        mockMvc.perform(get("/films/" + id))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.genres[0].name").value(Dictionaries.genres().get(1).getName()))
+                .andExpect(jsonPath("$.mpa.name").value(Dictionaries.ratings().get(2).getName()));
+    }
+
+    @Test
+    public void isPickingUpNewGenresOnRefresh() throws Exception {
+        String version = dictionaryService.getVersion();
+        dictionaryService.refresh();
+        assertEquals(version, dictionaryService.getVersion());
+
+        jdbcTemplate.update("INSERT INTO genres (name) VALUES (?)", NEW_GENRE);
+        dictionaryService.refresh();
+
+        assertNotEquals(version, dictionaryService.getVersion());
+        mockMvc.perform(get("/genres"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(Dictionaries.genres().size() + 1))
+                .andExpect(jsonPath("$[-1].name").value(NEW_GENRE));
+    }
+
+}
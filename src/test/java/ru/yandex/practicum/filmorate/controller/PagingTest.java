@@ -0,0 +1,120 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.model.Dictionaries;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@AutoConfigureTestDatabase
+@AutoConfigureMockMvc
+@SpringBootTest
+public class PagingTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private FilmController filmController;
+
+    @Autowired
+    private UserController userController;
+
+    @BeforeEach
+    public void setUp() {
+        filmController.deleteAllFilms();
+        userController.deleteAllUsers();
+    }
+
+    @Test
+    public void isPagingUsersAfterCursor() throws Exception {
+        User first = createUser("first");
+        User second = createUser("second");
+        User third = createUser("third");
+
+        mockMvc.perform(get("/users").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].id").value(first.getId()))
+                .andExpect(jsonPath("$[1].id").value(second.getId()));
+        mockMvc.perform(get("/users").param("after", String.valueOf(second.getId())).param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(third.getId()));
+        mockMvc.perform(get("/users").param("limit", "0")).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void isApplyingCursorWithoutLimit() throws Exception {
+        User first = createUser("first");
+        User second = createUser("second");
+        Film film = createFilm();
+        Film other = createFilm();
+
+        mockMvc.perform(get("/users").param("after", String.valueOf(first.getId())))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(second.getId()));
+        mockMvc.perform(get("/films").param("after", String.valueOf(film.getId())))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(other.getId()));
+    }
+
+    @Test
+    public void isStreamingFilmsAndUsersAsNdjson() throws Exception {
+        Film film = createFilm();
+        Film other = createFilm();
+        User user = createUser("user");
+
+        String films = stream("/films");
+        String[] lines = films.split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].startsWith("{\"id\":" + film.getId() + ","));
+        assertTrue(lines[1].startsWith("{\"id\":" + other.getId() + ","));
+        assertTrue(films.endsWith("\n"));
+
+        String users = stream("/users");
+        assertEquals(1, users.split("\n").length);
+        assertTrue(users.startsWith("{\"id\":" + user.getId() + ","));
+    }
+
+    private String stream(String url) throws Exception {
+        MvcResult result = mockMvc.perform(get(url).accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+    }
+
+    private Film createFilm() throws Exception {
+        return filmController.create(new Film(0, "Film", "Description", "2020-01-01", 120, new HashSet<>(),
+                Dictionaries.ratings().getFirst()));
+    }
+
+    private User createUser(String login) throws ValidationException {
+        return userController.create(new User(0, login + "@ya.ru", login, login, "1997-08-21", new HashSet<>()));
+    }
+
+}
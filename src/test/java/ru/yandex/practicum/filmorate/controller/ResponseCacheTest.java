@@ -0,0 +1,69 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ResponseCacheTest {
+
+    private final ResponseCache responseCache = new ResponseCache(new ObjectMapper(), 10, true);
+
+    @Test
+    public void isSerializingOncePerVersion() throws IOException {
+        AtomicInteger serializations = new AtomicInteger();
+
+        MockHttpServletResponse first = write("v1", () -> {
+            serializations.incrementAndGet();
+            return List.of(1, 2, 3);
+        });
+        MockHttpServletResponse second = write("v1", () -> {
+            serializations.incrementAndGet();
+            return List.of(4, 5, 6);
+        });
+        assertEquals(1, serializations.get());
+        assertEquals("[1,2,3]", first.getContentAsString());
+        assertEquals("[1,2,3]", second.getContentAsString());
+
+        assertEquals("[4,5,6]", write("v2", () -> List.of(4, 5, 6)).getContentAsString());
+        assertEquals(1, responseCache.getHitCount());
+        assertEquals(2, responseCache.getMissCount());
+        assertEquals(1, responseCache.size());
+    }
+
+    @Test
+    public void isServingGzipToClientsThatAcceptIt() throws IOException {
+        List<String> body = Collections.nCopies(200, "Комедия");
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/genres");
+        request.addHeader("Accept-Encoding", "gzip, deflate");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        response.setHeader("ETag", "\"v1\"");
+
+        responseCache.write(request, response, "key", "v1", () -> body);
+
+        assertEquals("gzip", response.getHeader("Content-Encoding"));
+        assertEquals("W/\"v1\"", response.getHeader("ETag"));
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray()))) {
+            assertArrayEquals(new ObjectMapper().writeValueAsBytes(body), in.readAllBytes());
+        }
+        assertNull(write("v1", () -> body).getHeader("Content-Encoding"));
+    }
+
+    private MockHttpServletResponse write(String version, Supplier<?> body) throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        response.setCharacterEncoding("UTF-8");
+        responseCache.write(new MockHttpServletRequest("GET", "/films/popular"), response, "key", version, body);
+        return response;
+    }
+
+}
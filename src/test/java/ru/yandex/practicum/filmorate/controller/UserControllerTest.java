@@ -9,6 +9,9 @@ import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabas
 import org.springframework.boot.test.context.SpringBootTest;
 import ru.yandex.practicum.filmorate.exceptions.ResourceNotFoundException;
 import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.model.FriendRecommendation;
+import ru.yandex.practicum.filmorate.model.LookupResult;
+import ru.yandex.practicum.filmorate.model.MutualFriendsCount;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.ArrayList;
@@ -158,4 +161,69 @@ public class UserControllerTest {
         assertTrue(commonFriends.contains(commonFriend));
     }
 
+    @Test
+    public void isGettingMutualFriendCounts() throws ResourceNotFoundException, ValidationException {
+        User user = new User(1, "user@ya.ru", "userLogin", "User", "1997-08-21", new HashSet<>());
+        User otherUser = new User(2, "other@ya.ru", "otherLogin", "Other User", "1997-08-21", new HashSet<>());
+        User stranger = new User(3, "stranger@ya.ru", "strangerLogin", "Stranger", "1997-08-21", new HashSet<>());
+        User firstFriend = new User(4, "first@ya.ru", "firstLogin", "First", "1997-08-21", new HashSet<>());
+        User secondFriend = new User(5, "second@ya.ru", "secondLogin", "Second", "1997-08-21", new HashSet<>());
+
+        for (User created : List.of(user, otherUser, stranger, firstFriend, secondFriend)) {
+            userController.create(created);
+        }
+        userController.addFriend(user.getId(), firstFriend.getId());
+        userController.addFriend(user.getId(), secondFriend.getId());
+        userController.addFriend(otherUser.getId(), firstFriend.getId());
+        userController.addFriend(otherUser.getId(), secondFriend.getId());
+        userController.addFriend(stranger.getId(), otherUser.getId());
+
+        List<MutualFriendsCount> counts = userController.getMutualFriendCounts(user.getId(),
+                List.of(otherUser.getId(), stranger.getId(), -1L));
+
+        assertEquals(List.of(new MutualFriendsCount(otherUser.getId(), 2), new MutualFriendsCount(stranger.getId(), 0)),
+                counts);
+    }
+
+    @Test
+    public void isRecommendingFriendsOfFriends() throws ResourceNotFoundException, ValidationException {
+        List<User> created = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            User user = new User(0, "user" + i + "@ya.ru", "user" + i, "User " + i, "1997-08-21", new HashSet<>());
+            created.add(userController.create(user));
+        }
+        long user = created.get(0).getId();
+        long firstFriend = created.get(1).getId();
+        long secondFriend = created.get(2).getId();
+        long popular = created.get(3).getId();
+        long other = created.get(4).getId();
+        userController.addFriend(user, firstFriend);
+        userController.addFriend(user, secondFriend);
+        userController.addFriend(firstFriend, popular);
+        userController.addFriend(firstFriend, other);
+        userController.addFriend(secondFriend, popular);
+
+        List<FriendRecommendation> recommendations = userController.getRecommendations(user, 10);
+
+        assertEquals(List.of(popular, other), recommendations.stream().map(r -> r.getUser().getId()).toList());
+        assertEquals(List.of(2, 1), recommendations.stream().map(FriendRecommendation::getMutualFriends).toList());
+
+        userController.addFriend(user, popular);
+        userController.removeFriend(firstFriend, other);
+
+        assertTrue(userController.getRecommendations(user, 10).isEmpty());
+    }
+
+    @Test
+    public void isGettingUsersByIdsInRequestOrder() throws ValidationException {
+        User first = userController.create(new User(0, "first@ya.ru", "first", "First", "1997-08-21", new HashSet<>()));
+        User second = userController.create(new User(0, "second@ya.ru", "second", "Second", "1997-08-21",
+                new HashSet<>()));
+
+        LookupResult<User> result = userController.getUsersByIds(List.of(second.getId(), first.getId(), -1L));
+
+        assertEquals(List.of(second.getId(), first.getId()), result.getItems().stream().map(User::getId).toList());
+        assertEquals(List.of(-1L), result.getMissingIds());
+    }
+
 }
@@ -0,0 +1,57 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SlowQueryLogTest {
+
+    private SimpleMeterRegistry registry;
+    private SingleConnectionDataSource dataSource;
+
+    @BeforeEach
+    public void setUp() {
+        registry = new SimpleMeterRegistry();
+        dataSource = new SingleConnectionDataSource("jdbc:h2:mem:slow-query-log", "sa", "", true);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        dataSource.destroy();
+    }
+
+    @Test
+    public void isCountingQueriesOverThreshold() {
+        JdbcOperations jdbc = proxy(Duration.ofNanos(1));
+
+        assertEquals(1, jdbc.queryForObject("SELECT ?", Integer.class, 1));
+        jdbc.update("CREATE TABLE t (id INTEGER)");
+
+        assertEquals(2, registry.get(SlowQueryLog.SLOW_QUERIES).counter().count());
+    }
+
+    @Test
+    public void isDisabledByZeroThreshold() {
+        JdbcOperations jdbc = proxy(Duration.ZERO);
+
+        jdbc.queryForObject("SELECT 1", Integer.class);
+
+        assertEquals(0, registry.get(SlowQueryLog.SLOW_QUERIES).counter().count());
+    }
+
+    private JdbcOperations proxy(Duration threshold) {
+        AspectJProxyFactory factory = new AspectJProxyFactory(new JdbcTemplate(dataSource));
+        factory.addAspect(new SlowQueryLog(registry, threshold));
+        return factory.getProxy();
+    }
+
+}
@@ -0,0 +1,64 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import ru.yandex.practicum.filmorate.model.Dictionaries;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StorageMetricsAspectTest {
+
+    private SimpleMeterRegistry registry;
+    private FilmStorage storage;
+
+    @BeforeEach
+    public void setUp() {
+        registry = new SimpleMeterRegistry();
+        storage = proxy(new InMemoryFilmStorage() {
+            @Override
+            public List<Film> getTopFilms(int count) {
+                throw new IllegalStateException("Хранилище недоступно");
+            }
+        });
+    }
+
+    @Test
+    public void isTimingCallsAndCountingRows() {
+        storage.addFilm(createFilm("First"));
+        storage.addFilm(createFilm("Second"));
+        storage.getAllFilms();
+        storage.getAllFilms();
+
+        assertEquals(2, registry.get(StorageMetricsAspect.OPERATIONS).tag("method", "getAllFilms").timer().count());
+        assertEquals(4, registry.get(StorageMetricsAspect.ROWS).tag("method", "getAllFilms").summary().totalAmount());
+        assertEquals(0, registry.get(StorageMetricsAspect.ERRORS).tag("method", "getAllFilms").counter().count());
+        assertNull(registry.find(StorageMetricsAspect.ROWS).tag("method", "filmExists").summary());
+    }
+
+    @Test
+    public void isCountingErrors() {
+        assertThrows(IllegalStateException.class, () -> storage.getTopFilms(10));
+
+        assertEquals(1, registry.get(StorageMetricsAspect.ERRORS).tag("method", "getTopFilms").counter().count());
+        assertEquals(1, registry.get(StorageMetricsAspect.OPERATIONS).tag("method", "getTopFilms").timer().count());
+    }
+
+    private FilmStorage proxy(FilmStorage target) {
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.addAspect(new StorageMetricsAspect(registry));
+        return factory.getProxy();
+    }
+
+    private Film createFilm(String name) {
+        return new Film(0, name, "Description", "2020-01-01", 120, new HashSet<>(), Dictionaries.ratings().getFirst());
+    }
+
+}
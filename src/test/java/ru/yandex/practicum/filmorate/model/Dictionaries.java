@@ -0,0 +1,34 @@
+package ru.yandex.practicum.filmorate.model;
+
+import java.util.List;
+
+/**
+ * Жанры и рейтинги, которые загружаются в базу при запуске приложения (data.sql).
+ */
+public final class Dictionaries {
+
+    private Dictionaries() {
+    }
+
+    public static List<Genre> genres() {
+        return List.of(
+                new Genre(1, "Комедия"),
+                new Genre(2, "Драма"),
+                new Genre(3, "Мультфильм"),
+                new Genre(4, "Триллер"),
+                new Genre(5, "Документальный"),
+                new Genre(6, "Боевик")
+        );
+    }
+
+    public static List<Rating> ratings() {
+        return List.of(
+                new Rating(1, "G"),
+                new Rating(2, "PG"),
+                new Rating(3, "PG-13"),
+                new Rating(4, "R"),
+                new Rating(5, "NC-17")
+        );
+    }
+
+}
@@ -0,0 +1,113 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Dictionaries;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FilmLeaderboardTest {
+
+    private InMemoryFilmStorage filmStorage;
+    private FilmLeaderboard filmLeaderboard;
+
+    @BeforeEach
+    public void setUp() {
+        filmStorage = new InMemoryFilmStorage();
+        filmLeaderboard = new FilmLeaderboard(filmStorage);
+    }
+
+    @Test
+    public void isKeepingEpochWhileTopOrderIsUnchanged() {
+        Film first = addFilm(Dictionaries.genres().getFirst());
+        Film second = addFilm(Dictionaries.genres().getFirst());
+        filmLeaderboard.changeLikes(first.getId(), 5);
+        long epoch = filmLeaderboard.getTopEpoch(10, null, null);
+
+        filmLeaderboard.changeLikes(first.getId(), 1);
+        filmLeaderboard.changeLikes(second.getId(), 1);
+        assertEquals(epoch, filmLeaderboard.getTopEpoch(10, null, null));
+
+        filmLeaderboard.changeLikes(second.getId(), 10);
+        assertNotEquals(epoch, filmLeaderboard.getTopEpoch(10, null, null));
+        assertEquals(0, filmLeaderboard.getTopEpoch(10, Dictionaries.genres().getLast().getId(), null));
+    }
+
+    @Test
+    public void isChangingEpochExactlyWhenTopWindowChanges() {
+        Random random = new Random(42);
+        List<Film> films = new ArrayList<>();
+        for (int i = 0; i < FilmLeaderboard.TOP_WINDOW * 3; i++) {
+            films.add(addFilm(Dictionaries.genres().get(i % 2)));
+        }
+        int genreId = Dictionaries.genres().getFirst().getId();
+
+        for (int i = 0; i < 5000; i++) {
+            List<Long> top = filmLeaderboard.getTopFilmIds(FilmLeaderboard.TOP_WINDOW);
+            List<Long> genreTop = filmLeaderboard.getTopFilmIds(FilmLeaderboard.TOP_WINDOW, genreId, null);
+            long epoch = filmLeaderboard.getTopEpoch(FilmLeaderboard.TOP_WINDOW, null, null);
+            long genreEpoch = filmLeaderboard.getTopEpoch(FilmLeaderboard.TOP_WINDOW, genreId, null);
+
+            Film film = films.get(random.nextInt(films.size()));
+            int action = random.nextInt(10);
+            if (action == 0) {
+                filmLeaderboard.removeFilm(film.getId());
+            } else if (action == 1) {
+                filmLeaderboard.addFilm(film);
+            } else {
+                filmLeaderboard.changeLikes(film.getId(), random.nextInt(5) - 2);
+            }
+
+            assertEquals(!top.equals(filmLeaderboard.getTopFilmIds(FilmLeaderboard.TOP_WINDOW)),
+                    epoch != filmLeaderboard.getTopEpoch(FilmLeaderboard.TOP_WINDOW, null, null));
+            assertEquals(!genreTop.equals(filmLeaderboard.getTopFilmIds(FilmLeaderboard.TOP_WINDOW, genreId, null)),
+                    genreEpoch != filmLeaderboard.getTopEpoch(FilmLeaderboard.TOP_WINDOW, genreId, null));
+        }
+    }
+
+    @Test
+    public void isKeepingLikesChangedDuringReload() {
+        Film film = addFilm(Dictionaries.genres().getFirst());
+        filmLeaderboard = new FilmLeaderboard(new InMemoryFilmStorage() {
+            @Override
+            public Map<Long, Long> getLikesCounts() {
+                // Снимок прочитан до того, как лайк дошёл до рейтинга
+                Map<Long, Long> snapshot = filmStorage.getLikesCounts();
+                filmLeaderboard.changeLikes(film.getId(), 1);
+                return snapshot;
+            }
+        });
+        filmLeaderboard.addFilm(film);
+
+        filmLeaderboard.reloadLikes();
+
+        assertEquals(1, filmLeaderboard.getLikes(film.getId()));
+    }
+
+    @Test
+    public void isIgnoringLikesOfUnknownFilm() {
+        Film film = addFilm(Dictionaries.genres().getFirst());
+
+        filmLeaderboard.changeLikes(film.getId() + 1, 3);
+
+        assertEquals(List.of(film.getId()), filmLeaderboard.getTopFilmIds(10));
+    }
+
+    private Film addFilm(Genre genre) {
+        Film film = filmStorage.addFilm(new Film(0, "Film", "Description", "2020-01-01", 120,
+                new HashSet<>(Set.of(genre)), Dictionaries.ratings().getFirst()));
+        filmLeaderboard.addFilm(film);
+        return film;
+    }
+
+}
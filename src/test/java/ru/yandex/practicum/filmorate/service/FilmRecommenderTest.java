@@ -0,0 +1,82 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FilmRecommenderTest {
+
+    private InMemoryFilmStorage filmStorage;
+    private FilmRecommender filmRecommender;
+
+    @BeforeEach
+    public void setUp() {
+        filmStorage = new InMemoryFilmStorage();
+        // Пользователь 1 похож на пользователя 2 сильнее, чем на пользователя 3
+        like(10, 1);
+        like(11, 1);
+        like(10, 2);
+        like(11, 2);
+        like(12, 2);
+        like(13, 2);
+        like(10, 3);
+        like(13, 3);
+        like(14, 3);
+        filmRecommender = new FilmRecommender(filmStorage, 1000, 50);
+        filmRecommender.rebuild();
+    }
+
+    @Test
+    public void isRecommendingFilmsOfSimilarUsers() {
+        assertEquals(List.of(13L, 12L, 14L), filmRecommender.recommend(1, 10));
+        assertEquals(List.of(13L), filmRecommender.recommend(1, 1));
+    }
+
+    @Test
+    public void isUpdatingIndexIncrementally() {
+        filmRecommender.addLike(13, 1);
+        assertEquals(List.of(12L, 14L), filmRecommender.recommend(1, 10));
+
+        filmRecommender.removeUser(2);
+        assertEquals(List.of(14L), filmRecommender.recommend(1, 10));
+
+        filmRecommender.removeFilm(14);
+        assertTrue(filmRecommender.recommend(1, 10).isEmpty());
+    }
+
+    @Test
+    public void isNotRecommendingWithoutLikes() {
+        assertTrue(filmRecommender.recommend(42, 10).isEmpty());
+    }
+
+    @Test
+    public void isCappingCandidatesAcrossAllLikedFilms() {
+        int films = 20;
+        int likersPerFilm = 1000;
+        for (int film = 0; film < films; film++) {
+            filmRecommender.addLike(100 + film, 1);
+            for (int liker = 0; liker < likersPerFilm; liker++) {
+                filmRecommender.addLike(100 + film, 1000 + (long) film * likersPerFilm + liker);
+            }
+        }
+
+        long[] candidates = filmRecommender.findCandidates(1, new long[]{100, 101, 102, 103, 104, 105, 106, 107,
+                108, 109, 110, 111, 112, 113, 114, 115, 116, 117, 118, 119});
+
+        assertTrue(candidates.length <= FilmRecommender.MAX_CANDIDATES);
+        // Кандидаты набраны со всех фильмов, а не только с первых
+        long lastFilmLiker = 1000L + (films - 1) * likersPerFilm;
+        assertTrue(Arrays.stream(candidates).anyMatch(id -> id >= lastFilmLiker));
+        assertTrue(Arrays.stream(candidates).noneMatch(id -> id == 1));
+    }
+
+    private void like(long filmId, long userId) {
+        filmStorage.addLike(filmId, userId);
+    }
+
+}
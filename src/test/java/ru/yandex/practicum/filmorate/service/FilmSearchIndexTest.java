@@ -0,0 +1,98 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Dictionaries;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FilmSearchIndexTest {
+
+    private InMemoryFilmStorage filmStorage;
+    private FilmLeaderboard filmLeaderboard;
+    private FilmSearchIndex filmSearchIndex;
+
+    @BeforeEach
+    public void setUp() {
+        filmStorage = new InMemoryFilmStorage();
+        filmLeaderboard = new FilmLeaderboard(filmStorage);
+        filmSearchIndex = new FilmSearchIndex(filmStorage, filmLeaderboard);
+    }
+
+    @Test
+    public void isNormalizingTokens() {
+        assertEquals(List.of("елки", "2", "new", "year"), FilmSearchIndex.tokenize("Ёлки-2: New  Year!"));
+    }
+
+    @Test
+    public void isRankingNameMatchesAboveDescriptionMatches() {
+        Film inDescription = addFilm("Праздник", "Фильм про ёлку и Новый год");
+        Film inName = addFilm("Новогодняя ёлка", "Комедия");
+        filmSearchIndex.rebuild();
+
+        assertEquals(List.of(inName.getId(), inDescription.getId()), search("елк"));
+        assertEquals(List.of(inDescription.getId()), search("ёлку новый"));
+        assertTrue(search("ёлку марс").isEmpty());
+    }
+
+    @Test
+    public void isBlendingRelevanceWithPopularity() {
+        Film first = addFilm("Matrix", "Sci-fi");
+        Film second = addFilm("Matrix Reloaded", "Sci-fi");
+        filmLeaderboard.rebuild();
+        filmSearchIndex.rebuild();
+        assertEquals(List.of(first.getId(), second.getId()), search("matrix"));
+
+        filmLeaderboard.changeLikes(second.getId(), 10);
+        assertEquals(List.of(second.getId(), first.getId()), search("matrix"));
+    }
+
+    @Test
+    public void isFindingAllFilmsForPrefixWithManyTerms() {
+        Film popular = null;
+        for (int i = 0; i < 300; i++) {
+            Film film = addFilm("Term" + i, "Description");
+            // «term99» — последнее по алфавиту из 300 подходящих слов
+            if (i == 99) {
+                popular = film;
+            }
+        }
+        filmLeaderboard.rebuild();
+        filmSearchIndex.rebuild();
+        filmLeaderboard.changeLikes(popular.getId(), 10);
+
+        assertEquals(popular.getId(), search("term").getFirst());
+        assertEquals(300, filmSearchIndex.search("term", 1000).size());
+        assertEquals(List.of(popular.getId()), search("description term99"));
+    }
+
+    @Test
+    public void isUpdatingIndexIncrementally() {
+        Film film = addFilm("Old name", "Description");
+        filmSearchIndex.indexFilm(film);
+        assertEquals(List.of(film.getId()), search("old"));
+
+        film.setName("New name");
+        filmSearchIndex.indexFilm(film);
+        assertTrue(search("old").isEmpty());
+        assertEquals(List.of(film.getId()), search("new"));
+
+        filmSearchIndex.removeFilm(film.getId());
+        assertTrue(search("new").isEmpty());
+    }
+
+    private List<Long> search(String query) {
+        return filmSearchIndex.search(query, 10);
+    }
+
+    private Film addFilm(String name, String description) {
+        return filmStorage.addFilm(new Film(0, name, description, "2020-01-01", 120, new HashSet<>(),
+                Dictionaries.ratings().getFirst()));
+    }
+
+}
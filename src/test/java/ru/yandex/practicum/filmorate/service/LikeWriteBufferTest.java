@@ -0,0 +1,195 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Dictionaries;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.AppliedLikes;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LikeWriteBufferTest {
+
+    private InMemoryFilmStorage filmStorage;
+    private InMemoryUserStorage userStorage;
+    private FilmRecommender recommender;
+    private LikeWriteBuffer buffer;
+    private Film film;
+    private User user1;
+    private User user2;
+    private User user3;
+
+    @BeforeEach
+    public void setUp() {
+        filmStorage = new InMemoryFilmStorage();
+        userStorage = new InMemoryUserStorage();
+        film = filmStorage.addFilm(new Film(0, "Film", "Description", "2020-01-01", 120, new HashSet<>(),
+                Dictionaries.ratings().getFirst()));
+        user1 = userStorage.addUser(new User(0, "user1@ya.ru", "user1", "User 1", "1997-08-21", new HashSet<>()));
+        user2 = userStorage.addUser(new User(0, "user2@ya.ru", "user2", "User 2", "1997-08-21", new HashSet<>()));
+        user3 = userStorage.addUser(new User(0, "user3@ya.ru", "user3", "User 3", "1997-08-21", new HashSet<>()));
+        recommender = new FilmRecommender(filmStorage, 1000, 50);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (buffer != null) {
+            buffer.stop();
+        }
+    }
+
+    @Test
+    public void isCoalescingLikeAndUnlike() {
+        buffer = createBuffer(100, 50);
+
+        assertTrue(buffer.addLike(film.getId(), user1.getId()));
+        assertFalse(buffer.addLike(film.getId(), user1.getId()));
+        assertEquals(1, buffer.getPendingCount());
+        assertTrue(buffer.removeLike(film.getId(), user1.getId()));
+        assertEquals(0, buffer.getPendingCount());
+
+        buffer.flush();
+        assertFalse(filmStorage.likeExists(film.getId(), user1.getId()));
+        assertEquals(0, buffer.getFlushCount());
+    }
+
+    @Test
+    public void isWritingBufferedLikesOnFlush() {
+        buffer = createBuffer(100, 50);
+        filmStorage.addLike(film.getId(), user2.getId());
+        recommender.rebuild();
+
+        assertTrue(buffer.addLike(film.getId(), user1.getId()));
+        assertTrue(buffer.removeLike(film.getId(), user2.getId()));
+        assertFalse(filmStorage.likeExists(film.getId(), user1.getId()));
+
+        buffer.flush();
+
+        assertTrue(filmStorage.likeExists(film.getId(), user1.getId()));
+        assertFalse(filmStorage.likeExists(film.getId(), user2.getId()));
+        assertEquals(0, buffer.getPendingCount());
+        assertEquals(2, buffer.getFlushedOperations());
+    }
+
+    @Test
+    public void isFlushingByCallerWhenBufferIsFull() {
+        buffer = createBuffer(2, 50);
+
+        buffer.addLike(film.getId(), user1.getId());
+        assertEquals(1, buffer.getPendingCount());
+        buffer.addLike(film.getId(), user2.getId());
+        buffer.addLike(film.getId(), user3.getId());
+
+        assertTrue(filmStorage.likeExists(film.getId(), user1.getId()));
+        assertTrue(filmStorage.likeExists(film.getId(), user2.getId()));
+        assertEquals(1, buffer.getPendingCount());
+    }
+
+    @Test
+    public void isKeepingLikesWhenWriteFails() {
+        AtomicBoolean failNext = new AtomicBoolean(true);
+        InMemoryFilmStorage failingStorage = new InMemoryFilmStorage() {
+            @Override
+            public AppliedLikes applyLikes(List<LikeOperation> operations) {
+                if (failNext.getAndSet(false)) {
+                    throw new IllegalStateException("Хранилище недоступно");
+                }
+                return super.applyLikes(operations);
+            }
+        };
+        Film failingFilm = failingStorage.addFilm(new Film(0, "Film", "Description", "2020-01-01", 120,
+                new HashSet<>(), Dictionaries.ratings().getFirst()));
+        FilmLeaderboard leaderboard = new FilmLeaderboard(failingStorage);
+        leaderboard.addFilm(failingFilm);
+        buffer = new LikeWriteBuffer(failingStorage, userStorage, leaderboard,
+                new FilmRecommender(failingStorage, 1000, 50), true, 100, 50, Duration.ofHours(1));
+        buffer.start();
+
+        assertTrue(buffer.addLike(failingFilm.getId(), user1.getId()));
+        assertTrue(buffer.addLike(failingFilm.getId(), user2.getId()));
+        leaderboard.changeLikes(failingFilm.getId(), 2);
+        assertThrows(IllegalStateException.class, buffer::flush);
+        assertEquals(2, buffer.getPendingCount());
+
+        // Отмена, поставленная после неудачного сброса, гасит вернувшийся в буфер лайк
+        assertTrue(buffer.removeLike(failingFilm.getId(), user2.getId()));
+        leaderboard.changeLikes(failingFilm.getId(), -1);
+        buffer.flush();
+
+        assertTrue(failingStorage.likeExists(failingFilm.getId(), user1.getId()));
+        assertFalse(failingStorage.likeExists(failingFilm.getId(), user2.getId()));
+        assertEquals(0, buffer.getPendingCount());
+        assertEquals(1, leaderboard.getLikes(failingFilm.getId()));
+    }
+
+    @Test
+    public void isBufferingWithoutReadingStorage() {
+        InMemoryFilmStorage countingStorage = new InMemoryFilmStorage() {
+            @Override
+            public boolean likeExists(long filmId, long userId) {
+                throw new AssertionError("Состояние лайка не должно читаться из хранилища");
+            }
+        };
+        Film countingFilm = countingStorage.addFilm(new Film(0, "Film", "Description", "2020-01-01", 120,
+                new HashSet<>(), Dictionaries.ratings().getFirst()));
+        countingStorage.addLike(countingFilm.getId(), user2.getId());
+        FilmRecommender countingRecommender = new FilmRecommender(countingStorage, 1000, 50);
+        countingRecommender.rebuild();
+        buffer = new LikeWriteBuffer(countingStorage, userStorage, new FilmLeaderboard(countingStorage),
+                countingRecommender, true, 100, 50, Duration.ofHours(1));
+        buffer.start();
+
+        assertTrue(buffer.addLike(countingFilm.getId(), user1.getId()));
+        assertFalse(buffer.addLike(countingFilm.getId(), user2.getId()));
+        assertTrue(buffer.removeLike(countingFilm.getId(), user2.getId()));
+        assertTrue(countingRecommender.hasLike(countingFilm.getId(), user1.getId()));
+        assertFalse(countingRecommender.hasLike(countingFilm.getId(), user2.getId()));
+        assertEquals(2, buffer.getPendingCount());
+    }
+
+    @Test
+    public void isDroppingSkippedLikesFromRecommender() {
+        buffer = createBuffer(100, 50);
+
+        assertTrue(buffer.addLike(film.getId(), user1.getId()));
+        // Пользователь удалён между проверкой его существования и постановкой лайка в буфер
+        userStorage.deleteUser(user2.getId());
+        recommender.removeUser(user2.getId());
+        assertTrue(buffer.addLike(film.getId(), user2.getId()));
+        assertTrue(recommender.hasLike(film.getId(), user2.getId()));
+        buffer.flush();
+
+        assertTrue(recommender.hasLike(film.getId(), user1.getId()));
+        assertFalse(recommender.hasLike(film.getId(), user2.getId()));
+        assertFalse(filmStorage.likeExists(film.getId(), user2.getId()));
+    }
+
+    @Test
+    public void isWritingThroughWhenDisabled() {
+        buffer = new LikeWriteBuffer(filmStorage, userStorage, new FilmLeaderboard(filmStorage), recommender, false,
+                100, 50, Duration.ofHours(1));
+
+        assertTrue(buffer.addLike(film.getId(), user1.getId()));
+        assertTrue(filmStorage.likeExists(film.getId(), user1.getId()));
+        assertTrue(recommender.hasLike(film.getId(), user1.getId()));
+        assertEquals(0, buffer.getPendingCount());
+    }
+
+    private LikeWriteBuffer createBuffer(int capacity, int batchSize) {
+        LikeWriteBuffer likeWriteBuffer = new LikeWriteBuffer(filmStorage, userStorage,
+                new FilmLeaderboard(filmStorage), recommender, true, capacity, batchSize, Duration.ofHours(1));
+        likeWriteBuffer.start();
+        return likeWriteBuffer;
+    }
+
+}
@@ -0,0 +1,95 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParallelLookupsTest {
+
+    private ExecutorService executorService;
+    private ParallelLookups parallelLookups;
+
+    @BeforeEach
+    public void setUp() {
+        executorService = Executors.newSingleThreadExecutor();
+        parallelLookups = new ParallelLookups(new TaskExecutorAdapter(executorService), true);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void isRunningLookupsConcurrently() {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+
+        ParallelLookups.Both<Boolean, Boolean> result = parallelLookups.fetch(
+                () -> awaitOther(bothStarted), () -> awaitOther(bothStarted));
+
+        assertTrue(result.first());
+        assertTrue(result.second());
+    }
+
+    @Test
+    public void isPropagatingSecondLookupFailureUnwrapped() {
+        assertThrows(IllegalArgumentException.class, () -> parallelLookups.fetch(() -> 1, () -> {
+            throw new IllegalArgumentException("Ошибка хранилища");
+        }));
+    }
+
+    @Test
+    public void isCancellingSecondLookupWhenFirstFails() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        executorService.execute(() -> awaitQuietly(release));
+        AtomicBoolean secondRan = new AtomicBoolean();
+
+        assertThrows(IllegalStateException.class, () -> parallelLookups.fetch(() -> {
+            throw new IllegalStateException("Ошибка хранилища");
+        }, () -> secondRan.getAndSet(true)));
+        release.countDown();
+        executorService.shutdown();
+
+        assertTrue(executorService.awaitTermination(5, TimeUnit.SECONDS));
+        assertFalse(secondRan.get());
+    }
+
+    @Test
+    public void isRunningSequentiallyInCallerThreadWhenDisabled() {
+        ParallelLookups sequential = new ParallelLookups(new TaskExecutorAdapter(executorService), false);
+        Thread caller = Thread.currentThread();
+
+        ParallelLookups.Both<Thread, Thread> result = sequential.fetch(Thread::currentThread, Thread::currentThread);
+
+        assertSame(caller, result.first());
+        assertSame(caller, result.second());
+    }
+
+    private static boolean awaitOther(CountDownLatch latch) {
+        latch.countDown();
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -0,0 +1,163 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Dictionaries;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CachingFilmStorageTest {
+
+    private InMemoryFilmStorage delegate;
+
+    @BeforeEach
+    public void setUp() {
+        delegate = new InMemoryFilmStorage();
+    }
+
+    @Test
+    public void isServingRepeatedLookupsFromCache() {
+        CachingFilmStorage storage = new CachingFilmStorage(delegate, 10, Duration.ZERO);
+        Film film = storage.addFilm(createFilm("Film"));
+
+        assertEquals(storage.getFilmById(film.getId()), storage.getFilmById(film.getId()));
+        assertEquals(1, storage.getMissCount());
+        assertEquals(1, storage.getHitCount());
+    }
+
+    @Test
+    public void isNotSharingCachedFilmsWithCallers() {
+        CachingFilmStorage storage = new CachingFilmStorage(delegate, 10, Duration.ZERO);
+        Film film = storage.addFilm(createFilm("Film"));
+        Film other = storage.addFilm(createFilm("Other"));
+
+        storage.getFilmById(film.getId()).setName("Changed");
+        storage.getFilmById(film.getId()).getGenres().add(Dictionaries.genres().getFirst());
+        storage.getFilmsByIds(List.of(other.getId())).getFirst().setName("Changed");
+        storage.getFilmsByIds(List.of(film.getId(), other.getId())).forEach(cached -> cached.setDuration(1));
+
+        Film cached = storage.getFilmById(film.getId());
+        assertEquals("Film", cached.getName());
+        assertEquals(120, cached.getDuration());
+        assertTrue(cached.getGenres().isEmpty());
+        assertEquals("Other", storage.getFilmById(other.getId()).getName());
+        assertEquals(2, storage.getMissCount());
+    }
+
+    @Test
+    public void isInvalidatingOnUpdateAndDelete() {
+        CachingFilmStorage storage = new CachingFilmStorage(delegate, 10, Duration.ZERO);
+        Film film = storage.addFilm(createFilm("Film"));
+        storage.getFilmById(film.getId());
+
+        Film updated = createFilm("Film updated");
+        updated.setId(film.getId());
+        storage.updateFilm(updated);
+        assertEquals("Film updated", storage.getFilmById(film.getId()).getName());
+
+        storage.deleteFilm(film.getId());
+        assertNull(storage.getFilmById(film.getId()));
+
+        Film other = storage.addFilm(createFilm("Other"));
+        storage.getFilmById(other.getId());
+        storage.deleteAllFilms();
+        assertNull(storage.getFilmById(other.getId()));
+        assertEquals(0, storage.size());
+    }
+
+    @Test
+    public void isEvictingLeastRecentlyUsed() {
+        CachingFilmStorage storage = new CachingFilmStorage(delegate, 2, Duration.ZERO);
+        Film first = storage.addFilm(createFilm("First"));
+        Film second = storage.addFilm(createFilm("Second"));
+        Film third = storage.addFilm(createFilm("Third"));
+
+        storage.getFilmById(first.getId());
+        storage.getFilmById(second.getId());
+        storage.getFilmById(first.getId());
+        storage.getFilmById(third.getId());
+
+        assertEquals(2, storage.size());
+        assertEquals(1, storage.getEvictionCount());
+        long missesBefore = storage.getMissCount();
+        storage.getFilmById(first.getId());
+        assertEquals(missesBefore, storage.getMissCount());
+        storage.getFilmById(second.getId());
+        assertEquals(missesBefore + 1, storage.getMissCount());
+    }
+
+    @Test
+    public void isExpiringEntriesAfterTtl() throws InterruptedException {
+        CachingFilmStorage storage = new CachingFilmStorage(delegate, 10, Duration.ofMillis(10));
+        Film film = storage.addFilm(createFilm("Film"));
+        storage.getFilmById(film.getId());
+
+        Thread.sleep(20);
+        storage.getFilmById(film.getId());
+
+        assertEquals(2, storage.getMissCount());
+        assertEquals(0, storage.getHitCount());
+    }
+
+    @Test
+    public void isLoadingOnlyUncachedFilmsInBatchLookup() {
+        CachingFilmStorage storage = new CachingFilmStorage(delegate, 10, Duration.ZERO);
+        Film cached = storage.addFilm(createFilm("Cached"));
+        Film uncached = storage.addFilm(createFilm("Uncached"));
+        storage.getFilmById(cached.getId());
+
+        List<Film> films = storage.getFilmsByIds(List.of(cached.getId(), uncached.getId(), -1L));
+
+        assertEquals(2, films.size());
+        assertEquals(1, storage.getHitCount());
+        assertEquals(3, storage.getMissCount());
+        assertEquals(films.get(1), storage.getFilmById(uncached.getId()));
+    }
+
+    @Test
+    public void isCheckingExistenceOfCachedFilmsWithoutStorage() {
+        List<Long> checked = new ArrayList<>();
+        CachingFilmStorage storage = new CachingFilmStorage(new InMemoryFilmStorage() {
+            @Override
+            public boolean filmExists(long id) {
+                checked.add(id);
+                return super.filmExists(id);
+            }
+
+            @Override
+            public Set<Long> getExistingFilmIds(Collection<Long> ids) {
+                checked.addAll(ids);
+                return super.getExistingFilmIds(ids);
+            }
+        }, 10, Duration.ZERO);
+        Film cached = storage.addFilm(createFilm("Cached"));
+        Film uncached = storage.addFilm(createFilm("Uncached"));
+        long missing = uncached.getId() + 1;
+        storage.getFilmById(cached.getId());
+
+        assertTrue(storage.filmExists(cached.getId()));
+        assertTrue(storage.filmExists(uncached.getId()));
+        assertFalse(storage.filmExists(missing));
+        assertEquals(Set.of(cached.getId(), uncached.getId()),
+                storage.getExistingFilmIds(List.of(cached.getId(), uncached.getId(), missing)));
+        assertTrue(storage.getExistingFilmIds(List.of()).isEmpty());
+        assertFalse(checked.contains(cached.getId()));
+
+        storage.deleteFilm(cached.getId());
+        assertFalse(storage.filmExists(cached.getId()));
+        assertTrue(storage.getExistingFilmIds(List.of(cached.getId())).isEmpty());
+    }
+
+    private Film createFilm(String name) {
+        return new Film(0, name, "Description", "2020-01-01", 120, new HashSet<>(), Dictionaries.ratings().getFirst());
+    }
+
+}
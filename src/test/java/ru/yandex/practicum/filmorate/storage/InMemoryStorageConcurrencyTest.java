@@ -0,0 +1,121 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Dictionaries;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InMemoryStorageConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int ITERATIONS = 2000;
+
+    @Test
+    public void isAssigningUniqueIdsConcurrently() throws Exception {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+
+        runConcurrently(thread -> {
+            for (int i = 0; i < ITERATIONS; i++) {
+                filmStorage.addFilm(createFilm());
+                userStorage.addUser(createUser(thread, i));
+            }
+        });
+
+        Set<Long> filmIds = new HashSet<>();
+        filmStorage.getAllFilms().forEach(film -> filmIds.add(film.getId()));
+        Set<Long> userIds = new HashSet<>();
+        userStorage.getAllUsers().forEach(user -> userIds.add(user.getId()));
+        assertEquals(THREADS * ITERATIONS, filmIds.size());
+        assertEquals(THREADS * ITERATIONS, userIds.size());
+    }
+
+    @Test
+    public void isNotLosingLikesUnderContention() throws Exception {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        Film film = filmStorage.addFilm(createFilm());
+        Film other = filmStorage.addFilm(createFilm());
+
+        runConcurrently(thread -> {
+            for (int i = 0; i < ITERATIONS; i++) {
+                long userId = (long) thread * ITERATIONS + i;
+                assertTrue(filmStorage.addLike(film.getId(), userId));
+                // Лайк и отмена на втором фильме постоянно создают и удаляют набор лайков
+                filmStorage.addLike(other.getId(), userId);
+                assertTrue(filmStorage.deleteLike(other.getId(), userId));
+                filmStorage.getTopFilms(2);
+            }
+        });
+
+        assertEquals(THREADS * ITERATIONS, filmStorage.getLikesCounts().get(film.getId()));
+        assertEquals(0, filmStorage.getLikesCounts().get(other.getId()));
+    }
+
+    @Test
+    public void isKeepingFriendshipsConsistentUnderContention() throws Exception {
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        User user = userStorage.addUser(createUser(0, 0));
+        List<User> friends = new ArrayList<>();
+        for (int i = 0; i < THREADS * 100; i++) {
+            friends.add(userStorage.addUser(createUser(1, i)));
+        }
+
+        runConcurrently(thread -> {
+            for (int i = thread; i < friends.size(); i += THREADS) {
+                long friendId = friends.get(i).getId();
+                userStorage.addFriend(user.getId(), friendId);
+                userStorage.getFriends(user.getId());
+                userStorage.getCommonFriends(user.getId(), friendId);
+                if (i % 2 == 0) {
+                    userStorage.removeFriend(friendId, user.getId());
+                }
+            }
+        });
+
+        assertEquals(friends.size() / 2, userStorage.getFriends(user.getId()).size());
+        for (int i = 0; i < friends.size(); i++) {
+            assertEquals(i % 2 == 0 ? 0 : 1, userStorage.getFriends(friends.get(i).getId()).size());
+        }
+    }
+
+    private void runConcurrently(ThreadTask task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < THREADS; thread++) {
+                int threadNumber = thread;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    task.run(threadNumber);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Film createFilm() {
+        return new Film(0, "Film", "Description", "2020-01-01", 120, new HashSet<>(), Dictionaries.ratings().getFirst());
+    }
+
+    private User createUser(int thread, int number) {
+        String login = "user" + thread + "_" + number;
+        return new User(0, login + "@ya.ru", login, login, "1997-08-21", new HashSet<>());
+    }
+
+    private interface ThreadTask {
+        void run(int thread);
+    }
+
+}
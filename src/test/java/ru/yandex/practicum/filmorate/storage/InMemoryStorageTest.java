@@ -0,0 +1,55 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Dictionaries;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InMemoryStorageTest {
+
+    @Test
+    public void isCheckingFilmExistence() {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        Film film = filmStorage.addFilm(createFilm());
+        Film other = filmStorage.addFilm(createFilm());
+        long missing = other.getId() + 1;
+
+        assertTrue(filmStorage.filmExists(film.getId()));
+        assertFalse(filmStorage.filmExists(missing));
+        assertEquals(Set.of(film.getId(), other.getId()),
+                filmStorage.getExistingFilmIds(List.of(film.getId(), missing, other.getId())));
+        assertTrue(filmStorage.getExistingFilmIds(List.of(missing)).isEmpty());
+        assertTrue(filmStorage.getExistingFilmIds(List.of()).isEmpty());
+    }
+
+    @Test
+    public void isCheckingUserExistence() {
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        User user = userStorage.addUser(createUser("user"));
+        User other = userStorage.addUser(createUser("other"));
+        long missing = other.getId() + 1;
+
+        assertTrue(userStorage.userExists(user.getId()));
+        assertFalse(userStorage.userExists(missing));
+        assertEquals(Set.of(user.getId(), other.getId()),
+                userStorage.getExistingUserIds(List.of(user.getId(), missing, other.getId())));
+        assertTrue(userStorage.getExistingUserIds(List.of(missing)).isEmpty());
+        assertTrue(userStorage.getExistingUserIds(List.of()).isEmpty());
+    }
+
+    private static Film createFilm() {
+        return new Film(0, "Film", "Description", "2020-01-01", 120, new HashSet<>(),
+                Dictionaries.ratings().getFirst());
+    }
+
+    private static User createUser(String login) {
+        return new User(0, login + "@ya.ru", login, login, "1997-08-21", new HashSet<>());
+    }
+
+}
@@ -0,0 +1,47 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SortedAdjacencyTest {
+
+    @Test
+    public void isKeepingLinkedIdsSorted() {
+        SortedAdjacency adjacency = new SortedAdjacency();
+
+        assertTrue(adjacency.add(1, 5));
+        assertTrue(adjacency.add(1, 2));
+        assertTrue(adjacency.add(1, 9));
+        assertFalse(adjacency.add(1, 2));
+
+        assertArrayEquals(new long[]{2, 5, 9}, adjacency.get(1));
+        assertTrue(adjacency.contains(1, 5));
+        assertFalse(adjacency.contains(5, 1));
+        assertEquals(3, adjacency.edgeCount());
+
+        assertTrue(adjacency.remove(1, 2));
+        assertFalse(adjacency.remove(1, 2));
+        assertArrayEquals(new long[]{5, 9}, adjacency.get(1));
+
+        assertArrayEquals(new long[]{5, 9}, adjacency.removeAll(1));
+        assertEquals(0, adjacency.degree(1));
+        assertEquals(0, adjacency.edgeCount());
+    }
+
+    @Test
+    public void isReplacingLinksOnBulkLoad() {
+        SortedAdjacency adjacency = new SortedAdjacency();
+        adjacency.add(1, 2);
+
+        adjacency.set(1, new long[]{3, 4});
+        adjacency.set(2, new long[]{1});
+        assertArrayEquals(new long[]{3, 4}, adjacency.get(1));
+        assertEquals(3, adjacency.edgeCount());
+
+        adjacency.set(1, new long[0]);
+        assertEquals(0, adjacency.degree(1));
+        assertEquals(1, adjacency.edgeCount());
+    }
+
+}
@@ -0,0 +1,61 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SortedIdsTest {
+
+    @Test
+    public void isIntersectingArraysOfSimilarSize() {
+        long[] first = {1, 3, 5, 7};
+        long[] second = {2, 3, 7, 8};
+
+        assertArrayEquals(new long[]{3, 7}, SortedIds.intersect(first, second));
+        assertEquals(2, SortedIds.intersectionSize(first, second));
+        assertArrayEquals(new long[0], SortedIds.intersect(first, new long[0]));
+    }
+
+    @Test
+    public void isIntersectingSkewedArrays() {
+        long[] celebrity = LongStream.rangeClosed(1, 100_000).map(id -> id * 2).toArray();
+        long[] user = {1, 2, 4, 99_999, 100_000, 199_998, 200_000, 200_002};
+
+        assertArrayEquals(new long[]{2, 4, 100_000, 199_998, 200_000}, SortedIds.intersect(user, celebrity));
+        assertArrayEquals(new long[]{2, 4, 100_000, 199_998, 200_000}, SortedIds.intersect(celebrity, user));
+        assertEquals(5, SortedIds.intersectionSize(celebrity, user));
+    }
+
+    @Test
+    public void isLimitingIdsEvenly() {
+        long[] ids = LongStream.rangeClosed(1, 10).toArray();
+
+        assertSame(ids, SortedIds.limit(ids, 10));
+        assertArrayEquals(new long[]{1, 3, 5, 7, 9}, SortedIds.limit(ids, 5));
+        assertArrayEquals(new long[]{1, 4, 7}, SortedIds.limit(ids, 3));
+    }
+
+    @Test
+    public void isMatchingNaiveIntersection() {
+        Random random = new Random(42);
+        for (int round = 0; round < 200; round++) {
+            long[] first = randomIds(random, random.nextInt(50));
+            long[] second = randomIds(random, random.nextInt(5000));
+            long[] expected = Arrays.stream(first)
+                    .filter(id -> Arrays.binarySearch(second, id) >= 0)
+                    .toArray();
+
+            assertArrayEquals(expected, SortedIds.intersect(first, second));
+            assertEquals(expected.length, SortedIds.intersectionSize(second, first));
+        }
+    }
+
+    private long[] randomIds(Random random, int size) {
+        return random.longs(size, 1, 10_000).distinct().sorted().toArray();
+    }
+
+}
@@ -0,0 +1,231 @@
+package ru.yandex.practicum.filmorate.storage.db;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.model.Dictionaries;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.AppliedLikes;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@JdbcTest
+@Import({FilmDbStorage.class, UserDbStorage.class, DictionaryDbStorage.class})
+public class FilmDbStorageTest {
+
+    @Autowired
+    private FilmDbStorage filmStorage;
+
+    @Autowired
+    private UserDbStorage userStorage;
+
+    @Autowired
+    private DictionaryDbStorage dictionaryDbStorage;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Film film;
+    private User user;
+
+    @BeforeEach
+    public void setUp() {
+        film = addFilm();
+        user = addUser("user");
+    }
+
+    @Test
+    public void isCheckingFilmExistence() {
+        Film other = addFilm();
+        long missing = other.getId() + 1;
+
+        assertTrue(filmStorage.filmExists(film.getId()));
+        assertFalse(filmStorage.filmExists(missing));
+        assertEquals(Set.of(film.getId(), other.getId()),
+                filmStorage.getExistingFilmIds(List.of(film.getId(), missing, other.getId())));
+        assertTrue(filmStorage.getExistingFilmIds(List.of(missing)).isEmpty());
+        assertTrue(filmStorage.getExistingFilmIds(List.of()).isEmpty());
+    }
+
+    @Test
+    public void isQueryingMoreIdsThanFitInOneInClause() {
+        List<Long> filmIds = new ArrayList<>(LongStream.rangeClosed(1, 2500).map(id -> film.getId() + id).boxed()
+                .toList());
+        filmIds.add(film.getId());
+        assertEquals(Set.of(film.getId()), filmStorage.getExistingFilmIds(filmIds));
+
+        filmStorage.addLike(film.getId(), user.getId());
+        List<LikeOperation> operations = new ArrayList<>();
+        for (long userId = user.getId() + 1; userId <= user.getId() + 1500; userId++) {
+            operations.add(new LikeOperation(film.getId(), userId, LikeOperation.Action.UNLIKE));
+        }
+        operations.add(like(LikeOperation.Action.UNLIKE));
+        AppliedLikes result = filmStorage.applyLikes(operations);
+
+        assertTrue(result.applied()[operations.size() - 1]);
+        assertEquals(1, IntStream.range(0, operations.size()).filter(i -> result.applied()[i]).count());
+        assertEquals(0, likesCount());
+    }
+
+    @Test
+    public void isCountingLikesOnLikeAndUnlike() {
+        User other = addUser("other");
+
+        assertTrue(filmStorage.addLike(film.getId(), user.getId()));
+        assertFalse(filmStorage.addLike(film.getId(), user.getId()));
+        assertTrue(filmStorage.addLike(film.getId(), other.getId()));
+        assertEquals(2, likesCount());
+
+        assertTrue(filmStorage.deleteLike(film.getId(), user.getId()));
+        assertFalse(filmStorage.deleteLike(film.getId(), user.getId()));
+        assertEquals(1, likesCount());
+    }
+
+    @Test
+    public void isDecrementingLikesCountWhenUserIsDeleted() {
+        User other = addUser("other");
+        Film otherFilm = addFilm();
+        filmStorage.addLike(film.getId(), user.getId());
+        filmStorage.addLike(film.getId(), other.getId());
+        filmStorage.addLike(otherFilm.getId(), other.getId());
+
+        userStorage.deleteUser(other.getId());
+
+        assertEquals(1, likesCount());
+        assertEquals(0, likesCount(otherFilm));
+    }
+
+    @Test
+    public void isRepairingDriftedLikesCounts() {
+        Film otherFilm = addFilm();
+        filmStorage.addLike(film.getId(), user.getId());
+        jdbcTemplate.update("UPDATE films SET likes_count = 5 WHERE id = ?", film.getId());
+        jdbcTemplate.update("UPDATE films SET likes_count = -1 WHERE id = ?", otherFilm.getId());
+
+        assertEquals(2, filmStorage.reconcileLikesCounts());
+        assertEquals(1, likesCount());
+        assertEquals(0, likesCount(otherFilm));
+        assertEquals(0, filmStorage.reconcileLikesCounts());
+    }
+
+    @Test
+    public void isReportingBatchLikesByChangedRows() {
+        AppliedLikes result = filmStorage.applyLikes(List.of(
+                like(LikeOperation.Action.LIKE),
+                like(LikeOperation.Action.LIKE),
+                like(LikeOperation.Action.UNLIKE),
+                like(LikeOperation.Action.LIKE)));
+
+        assertArrayEquals(new boolean[]{true, false, true, true}, result.applied());
+        assertEquals(Map.of(film.getId(), 1L), result.likeDeltas());
+        assertEquals(1, likesCount());
+    }
+
+    @Test
+    public void isNotApplyingLikeWrittenConcurrently() {
+        // Хранилище, которое успевает увидеть пустой набор лайков, после чего тот же лайк пишет другой запрос
+        JdbcTemplate racing = new JdbcTemplate(jdbcTemplate.getDataSource()) {
+            @Override
+            public <T> List<T> query(String sql, RowMapper<T> rowMapper, Object... args) {
+                List<T> result = super.query(sql, rowMapper, args);
+                if (sql.startsWith("SELECT film_id, user_id FROM likes")) {
+                    filmStorage.addLike(film.getId(), user.getId());
+                }
+                return result;
+            }
+        };
+        FilmDbStorage storage = new FilmDbStorage(racing, dictionaryDbStorage);
+
+        AppliedLikes result = storage.applyLikes(List.of(like(LikeOperation.Action.LIKE)));
+
+        assertArrayEquals(new boolean[]{false}, result.applied());
+        assertTrue(result.likeDeltas().isEmpty());
+        assertEquals(1, likesCount());
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void isReportingConcurrentInsertOfSameLikeAsNotApplied() throws Exception {
+        // Без транзакции теста: оба пакета должны фиксироваться независимо
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            users.add(addUser("racer" + i));
+        }
+        // У каждого потока ещё и свой фильм: лайк ему никто не оспаривает, и он должен примениться
+        Film firstOwn = addFilm();
+        Film secondOwn = addFilm();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (User racer : users) {
+                CyclicBarrier barrier = new CyclicBarrier(2);
+                Future<AppliedLikes> first = executor.submit(likeConcurrently(barrier, racer, firstOwn));
+                Future<AppliedLikes> second = executor.submit(likeConcurrently(barrier, racer, secondOwn));
+
+                boolean[] firstApplied = first.get().applied();
+                boolean[] secondApplied = second.get().applied();
+                assertEquals(1, (firstApplied[0] ? 1 : 0) + (secondApplied[0] ? 1 : 0));
+                assertTrue(firstApplied[1]);
+                assertTrue(secondApplied[1]);
+            }
+            assertEquals(users.size(), likesCount());
+            assertEquals(users.size(), likesCount(firstOwn));
+            assertEquals(users.size(), likesCount(secondOwn));
+        } finally {
+            executor.shutdown();
+            filmStorage.deleteAllFilms();
+            userStorage.deleteAllUsers();
+        }
+    }
+
+    private Callable<AppliedLikes> likeConcurrently(CyclicBarrier barrier, User user, Film ownFilm) {
+        return () -> {
+            barrier.await();
+            return filmStorage.applyLikes(List.of(
+                    new LikeOperation(film.getId(), user.getId(), LikeOperation.Action.LIKE),
+                    new LikeOperation(ownFilm.getId(), user.getId(), LikeOperation.Action.LIKE)));
+        };
+    }
+
+    private LikeOperation like(LikeOperation.Action action) {
+        return new LikeOperation(film.getId(), user.getId(), action);
+    }
+
+    private Film addFilm() {
+        return filmStorage.addFilm(new Film(0, "Film", "Description", "2020-01-01", 120, new HashSet<>(),
+                Dictionaries.ratings().getFirst()));
+    }
+
+    private User addUser(String login) {
+        return userStorage.addUser(new User(0, login + "@ya.ru", login, login, "1997-08-21", new HashSet<>()));
+    }
+
+    private int likesCount() {
+        return likesCount(film);
+    }
+
+    private int likesCount(Film film) {
+        return jdbcTemplate.queryForObject("SELECT likes_count FROM films WHERE id = ?", Integer.class, film.getId());
+    }
+
+}
@@ -0,0 +1,16 @@
+package ru.yandex.practicum.filmorate.storage.db;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InClauseTest {
+
+    @Test
+    public void isJoiningPlaceholders() {
+        assertEquals("", InClause.placeholders(0));
+        assertEquals("?", InClause.placeholders(1));
+        assertEquals("?, ?, ?", InClause.placeholders(3));
+    }
+
+}
@@ -0,0 +1,60 @@
+package ru.yandex.practicum.filmorate.storage.db;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@JdbcTest
+@Import(UserDbStorage.class)
+public class UserDbStorageTest {
+
+    @Autowired
+    private UserDbStorage userStorage;
+
+    @Test
+    public void isCheckingUserExistence() {
+        User user = addUser("user");
+        User other = addUser("other");
+        long missing = other.getId() + 1;
+
+        assertTrue(userStorage.userExists(user.getId()));
+        assertFalse(userStorage.userExists(missing));
+        assertEquals(Set.of(user.getId(), other.getId()),
+                userStorage.getExistingUserIds(List.of(user.getId(), missing, other.getId())));
+        assertTrue(userStorage.getExistingUserIds(List.of(missing)).isEmpty());
+        assertTrue(userStorage.getExistingUserIds(List.of()).isEmpty());
+    }
+
+    @Test
+    public void isQueryingMoreIdsThanFitInOneInClause() {
+        User user = addUser("user");
+        User friend = addUser("friend");
+        userStorage.addFriend(user.getId(), friend.getId());
+        List<Long> ids = new ArrayList<>(LongStream.rangeClosed(1, 2500).map(id -> friend.getId() + id).boxed()
+                .toList());
+        ids.add(user.getId());
+        ids.add(friend.getId());
+
+        assertEquals(Set.of(user.getId(), friend.getId()), userStorage.getExistingUserIds(ids));
+        Map<Long, long[]> friendIds = userStorage.getFriendIds(ids);
+        assertEquals(ids.size(), friendIds.size());
+        assertArrayEquals(new long[]{friend.getId()}, friendIds.get(user.getId()));
+        assertArrayEquals(new long[0], friendIds.get(friend.getId()));
+    }
+
+    private User addUser(String login) {
+        return userStorage.addUser(new User(0, login + "@ya.ru", login, login, "1997-08-21", new HashSet<>()));
+    }
+
+}